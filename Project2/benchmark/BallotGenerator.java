@@ -0,0 +1,253 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Writes synthetic PV, MV and STV election files in the format Main reads, for load testing
+ * at sizes far beyond the fixtures in Project2/testing. Ballots are generated one at a time
+ * and streamed to disk through an AuditWriter, so memory use does not grow with the number
+ * of ballots. The same seed and options always produce the same file.
+ *
+ * Candidate preference is either uniform or skewed towards the first candidates by a Zipf
+ * weight of 1/(i+1)^skew. STV ballots rank every candidate unless they are picked as partial,
+ * in which case only the first 1 to n-1 preferences are kept.
+ *
+ * @author Zach Larsen
+ */
+public final class BallotGenerator {
+
+    /** Type of election written to the header, "PV", "MV" or "STV". */
+    private final String electionType;
+
+    /** Number of candidates on each ballot. */
+    private final int numCandidates;
+
+    /** Number of seats to be filled. */
+    private final int numSeats;
+
+    /** Random source of the ballots. */
+    private final Random rand;
+
+    /** Running total of the candidate weights, used to pick a candidate by weight. */
+    private final double[] cumulativeWeights;
+
+    /** Weight of each candidate. */
+    private final double[] weights;
+
+    /** Zipf exponent of the candidate weights, 0 for uniform preferences. */
+    private double skew = 0;
+
+    /** Chance that an STV ballot only ranks some of the candidates. */
+    private double partialRate = 0;
+
+    /** Scratch space for ordering the candidates of an STV ballot. */
+    private final double[] keys;
+
+    /** Scratch space for the candidate order of an STV ballot. */
+    private final Integer[] order;
+
+    /**
+     * Creates a generator with uniform preferences and fully ranked ballots.
+     *
+     * @param electionType The type of election, "PV", "MV" or "STV".
+     * @param numCandidates The number of candidates.
+     * @param numSeats The number of seats to be filled.
+     * @param seed The seed of the random ballots.
+     */
+    public BallotGenerator(String electionType, int numCandidates, int numSeats, long seed) {
+        if (!electionType.equals("PV") && !electionType.equals("MV") && !electionType.equals("STV")) {
+            throw new IllegalArgumentException("Election type must be PV, MV or STV: " + electionType);
+        }
+        if (numCandidates < 1 || numSeats < 1) {
+            throw new IllegalArgumentException("There must be at least one candidate and one seat");
+        }
+        this.electionType = electionType;
+        this.numCandidates = numCandidates;
+        this.numSeats = numSeats;
+        this.rand = new Random(seed);
+        this.weights = new double[numCandidates];
+        this.cumulativeWeights = new double[numCandidates];
+        this.keys = new double[numCandidates];
+        this.order = new Integer[numCandidates];
+        setSkew(0);
+    }
+
+    /**
+     * Sets how strongly voters prefer the first candidates.
+     *
+     * @param skew The Zipf exponent of the candidate weights, 0 for uniform preferences.
+     */
+    public void setSkew(double skew) {
+        if (skew < 0) {
+            throw new IllegalArgumentException("Skew can not be negative: " + skew);
+        }
+        this.skew = skew;
+        double total = 0;
+        for (int i = 0; i < numCandidates; i++) {
+            weights[i] = 1 / Math.pow(i + 1, skew);
+            total += weights[i];
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Sets the chance that an STV ballot only ranks some of the candidates.
+     *
+     * @param partialRate The chance, from 0 to 1.
+     */
+    public void setPartialRate(double partialRate) {
+        if (partialRate < 0 || partialRate > 1) {
+            throw new IllegalArgumentException("Partial ranking rate must be between 0 and 1: " + partialRate);
+        }
+        this.partialRate = partialRate;
+    }
+
+    /**
+     * Fills in the rankings of the next ballot, with 0 for a candidate that is not ranked.
+     *
+     * @param ranks Array with one slot per candidate that receives the rankings.
+     */
+    public void nextBallot(int[] ranks) {
+        Arrays.fill(ranks, 0);
+        if (electionType.equals("PV")) {
+            ranks[pickCandidate()] = 1;
+        }
+        else if (electionType.equals("MV")) {
+            int numMarks = 1 + rand.nextInt(Math.min(numSeats, numCandidates));
+            for (int mark = 0; mark < numMarks; mark++) {
+                ranks[pickCandidate()] = 1;
+            }
+        }
+        else {
+            for (int i = 0; i < numCandidates; i++) {
+                order[i] = i;
+            }
+            if (skew == 0) {
+                for (int i = numCandidates - 1; i > 0; i--) {
+                    int j = rand.nextInt(i + 1);
+                    Integer swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                }
+            }
+            else {
+                // Weighted order without replacement: sort the candidates by -ln(u)/weight
+                for (int i = 0; i < numCandidates; i++) {
+                    keys[i] = -Math.log(1 - rand.nextDouble()) / weights[i];
+                }
+                Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b]));
+            }
+
+            int numRanked = numCandidates;
+            if (numCandidates > 1 && rand.nextDouble() < partialRate) {
+                numRanked = 1 + rand.nextInt(numCandidates - 1);
+            }
+            for (int i = 0; i < numRanked; i++) {
+                ranks[order[i]] = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Picks a candidate column by weight.
+     *
+     * @return The column of the candidate.
+     */
+    private int pickCandidate() {
+        if (skew == 0) {
+            return rand.nextInt(numCandidates);
+        }
+        double target = rand.nextDouble() * cumulativeWeights[numCandidates - 1];
+        int column = Arrays.binarySearch(cumulativeWeights, target);
+        if (column < 0) {
+            column = -column - 1;
+        }
+        return Math.min(column, numCandidates - 1);
+    }
+
+    /**
+     * Streams an election file with the given number of ballots to disk.
+     *
+     * @param filename The path of the election file, replaced if it exists.
+     * @param numBallots The number of ballots.
+     * @throws IOException If the file can not be written.
+     */
+    public void write(String filename, int numBallots) throws IOException {
+        int[] ranks = new int[numCandidates];
+        try (AuditWriter writer = new AuditWriter(new File(filename))) {
+            writer.write(String.format("%s\n%d\n%d\n%d\n", electionType, numSeats, numCandidates, numBallots));
+            for (int column = 0; column < numCandidates; column++) {
+                if (column > 0) {
+                    writer.writeByte(',');
+                }
+                writer.write("C" + (column + 1));
+            }
+            writer.writeByte('\n');
+
+            for (int ballot = 0; ballot < numBallots; ballot++) {
+                nextBallot(ranks);
+                for (int column = 0; column < numCandidates; column++) {
+                    if (column > 0) {
+                        writer.writeByte(',');
+                    }
+                    if (ranks[column] != 0) {
+                        writer.writeInt(ranks[column]);
+                    }
+                }
+                writer.writeByte('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes an election file from the command line. Options are given as name=value pairs:
+     * --type=STV --ballots=1000000 --candidates=20 --seats=3 --skew=1.0 --partial=0.2 --seed=5801 --output=big.csv
+     *
+     * @param args The command line options.
+     * @throws IOException If the file can not be written.
+     */
+    public static void main(String[] args) throws IOException {
+        String type = "PV";
+        int numBallots = 1000;
+        int numCandidates = 5;
+        int numSeats = 1;
+        double skew = 0;
+        double partialRate = 0;
+        long seed = 5801;
+        String output = null;
+
+        try {
+            for (String arg : args) {
+                int split = arg.indexOf('=');
+                String name = split == -1 ? arg : arg.substring(0, split);
+                String value = split == -1 ? "" : arg.substring(split + 1);
+                switch (name) {
+                    case "--type" -> type = value;
+                    case "--ballots" -> numBallots = Integer.parseInt(value);
+                    case "--candidates" -> numCandidates = Integer.parseInt(value);
+                    case "--seats" -> numSeats = Integer.parseInt(value);
+                    case "--skew" -> skew = Double.parseDouble(value);
+                    case "--partial" -> partialRate = Double.parseDouble(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--output" -> output = value;
+                    default -> throw new IllegalArgumentException("Unrecognized option: " + arg);
+                }
+            }
+            if (output == null) {
+                throw new IllegalArgumentException("An output file must be given with --output");
+            }
+            if (numBallots < 1) {
+                throw new IllegalArgumentException("There must be at least one ballot");
+            }
+
+            BallotGenerator generator = new BallotGenerator(type, numCandidates, numSeats, seed);
+            generator.setSkew(skew);
+            generator.setPartialRate(partialRate);
+            generator.write(output, numBallots);
+        } catch (IllegalArgumentException error) {
+            System.err.printf("An error occurred: %s\n", error.getMessage());
+            System.exit(-1);
+        }
+    }
+}
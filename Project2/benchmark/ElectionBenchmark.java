@@ -0,0 +1,476 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Benchmark harness for the hot paths of the voting system: parsing election files,
+ * Plurality/MV/STV tabulation, determine_Winner_Loser and generateAudit. Each benchmark
+ * runs over seeded synthetic ballot sets for every combination of ballot and candidate
+ * counts, with warmup iterations followed by measured ones, and reports the average time
+ * per operation so changes to these paths have a baseline to compare against.
+ * Setup work such as building a fresh election is done before each timed operation and is
+ * not included in the score.
+ *
+ * @author Zach Larsen
+ */
+public class ElectionBenchmark {
+
+    /** Seed of the synthetic ballot sets, so every run measures the same ballots. */
+    private static final long SEED = 5801;
+
+    /** Number of seats in every benchmarked election, capped at the number of candidates. */
+    private static final int SEATS = 2;
+
+    /** Names of every benchmark, in the order they are run. */
+    private static final String[] BENCHMARKS = {"parse", "plurality", "mv", "stv", "group", "winnerLoser", "audit"};
+
+    /** Number of ballots in each synthetic ballot set. */
+    private int[] ballotCounts = {10_000, 1_000_000, 10_000_000};
+
+    /** Number of candidates in each synthetic ballot set. */
+    private int[] candidateCounts = {5, 50, 200};
+
+    /** Number of untimed iterations run before measuring. */
+    private int warmupIterations = 2;
+
+    /** Number of timed iterations. */
+    private int measureIterations = 5;
+
+    /** Names of the benchmarks that are run. */
+    private ArrayList<String> selected = new ArrayList<>(Arrays.asList(BENCHMARKS));
+
+    /** Number of candidates in the ballot set being measured. */
+    private int numCandidates;
+
+    /** Number of seats in the ballot set being measured. */
+    private int numSeats;
+
+    /** Plurality ballots of the set being measured, built on first use. */
+    private BallotStore pluralityBallots;
+
+    /** MV ballots of the set being measured, built on first use. */
+    private BallotStore mvBallots;
+
+    /** STV ballots of the set being measured, built on first use. */
+    private BallotStore stvBallots;
+
+    /** Scratch file the audit benchmark writes to. */
+    private File auditFile;
+
+    /**
+     * A single timed operation and the untimed setup it needs before every run.
+     */
+    private interface Operation {
+
+        /**
+         * Prepares the state the next timed run works on.
+         *
+         * @throws IOException If a file needed by the run can not be written.
+         */
+        void setup() throws IOException;
+
+        /**
+         * The work that is timed.
+         *
+         * @throws IOException If a file used by the run can not be read.
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs the benchmarks. Options are given as name=value pairs:
+     * --ballots=10000,1000000 --candidates=5,50 --warmup=2 --iterations=5 --benchmarks=parse,stv
+     *
+     * @param args The command line options.
+     * @throws IOException If a scratch file can not be written.
+     */
+    public static void main(String[] args) throws IOException {
+        ElectionBenchmark benchmark = new ElectionBenchmark();
+        for (String arg : args) {
+            if (!benchmark.parseOption(arg)) {
+                System.err.printf("Unrecognized option: %s\n", arg);
+                System.exit(-1);
+            }
+        }
+        benchmark.runAll();
+    }
+
+    /**
+     * Applies one command line option.
+     *
+     * @param arg The option in name=value form.
+     * @return true if the option was recognized, false otherwise.
+     */
+    private boolean parseOption(String arg) {
+        int split = arg.indexOf('=');
+        if (split == -1) {
+            return false;
+        }
+        String name = arg.substring(0, split);
+        String value = arg.substring(split + 1);
+        try {
+            if (name.equals("--ballots")) {
+                ballotCounts = parseCounts(value);
+            }
+            else if (name.equals("--candidates")) {
+                candidateCounts = parseCounts(value);
+            }
+            else if (name.equals("--warmup")) {
+                warmupIterations = Integer.parseInt(value);
+            }
+            else if (name.equals("--iterations")) {
+                measureIterations = Integer.parseInt(value);
+            }
+            else if (name.equals("--benchmarks")) {
+                selected = new ArrayList<>(Arrays.asList(value.split(",")));
+                return Arrays.asList(BENCHMARKS).containsAll(selected);
+            }
+            else {
+                return false;
+            }
+        } catch (NumberFormatException error) {
+            return false;
+        }
+        return warmupIterations >= 0 && measureIterations > 0;
+    }
+
+    /**
+     * Parses a comma separated list of positive counts.
+     *
+     * @param value The list of counts.
+     * @return The counts.
+     * @throws NumberFormatException If a count is not a positive whole number.
+     */
+    private static int[] parseCounts(String value) {
+        String[] fields = value.split(",");
+        int[] counts = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            counts[i] = Integer.parseInt(fields[i].trim());
+            if (counts[i] <= 0) {
+                throw new NumberFormatException("Counts must be positive: " + fields[i]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Runs every selected benchmark for every ballot set and prints a row per result.
+     *
+     * @throws IOException If a scratch file can not be written.
+     */
+    private void runAll() throws IOException {
+        auditFile = File.createTempFile("benchmark-audit", ".txt");
+        auditFile.deleteOnExit();
+
+        System.out.printf("%-12s %10s %12s %5s %14s %12s  %s\n",
+                "Benchmark", "(ballots)", "(candidates)", "Cnt", "Score", "Error", "Units");
+        for (int numBallots : ballotCounts) {
+            for (int candidates : candidateCounts) {
+                numCandidates = candidates;
+                numSeats = Math.min(SEATS, candidates);
+                pluralityBallots = null;
+                mvBallots = null;
+                stvBallots = null;
+                System.gc();
+
+                long needed = estimateMemory(numBallots, candidates);
+                if (needed > Runtime.getRuntime().maxMemory()) {
+                    System.out.printf("%-12s %10d %12d  skipped, needs about %d MB of heap (-Xmx)\n",
+                            "*", numBallots, candidates, needed >> 20);
+                    continue;
+                }
+                for (String name : selected) {
+                    try {
+                        measure(name, numBallots, createOperation(name, numBallots));
+                    } catch (RuntimeException error) {
+                        // An election that can not finish on this ballot set is reported instead of ending the run
+                        System.out.printf("%-12s %10d %12d  failed: %s\n", name, numBallots, candidates, error);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap a ballot set needs at its peak, while STV counts: five rank matrices
+     * (the cached Plurality, MV and STV ballots, the working copy STV tabulates and its rank
+     * index), plus, per ballot, the int ID and owner of each of the four stores and the int IDs
+     * STV keeps in candidates' lists, with room for those lists to grow.
+     *
+     * @param numBallots The number of ballots.
+     * @param candidates The number of candidates.
+     * @return The estimated number of bytes.
+     */
+    private static long estimateMemory(long numBallots, long candidates) {
+        return numBallots * (candidates * Short.BYTES * 5 + 64);
+    }
+
+    /**
+     * Runs the warmup and measured iterations of one benchmark and prints its score.
+     *
+     * @param name The name of the benchmark.
+     * @param numBallots The number of ballots in the set.
+     * @param operation The operation to time.
+     * @throws IOException If the operation fails.
+     */
+    private void measure(String name, int numBallots, Operation operation) throws IOException {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.setup();
+            operation.run();
+        }
+
+        double[] times = new double[measureIterations];
+        for (int i = 0; i < measureIterations; i++) {
+            operation.setup();
+            long start = System.nanoTime();
+            operation.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+
+        double mean = 0;
+        for (double time : times) {
+            mean += time;
+        }
+        mean /= times.length;
+        double variance = 0;
+        for (double time : times) {
+            variance += (time - mean) * (time - mean);
+        }
+        double error = times.length > 1 ? Math.sqrt(variance / (times.length - 1)) : 0;
+
+        System.out.printf("%-12s %10d %12d %5d %14.3f %12.3f  ms/op\n",
+                name, numBallots, numCandidates, measureIterations, mean, error);
+    }
+
+    /**
+     * Creates the operation of a benchmark over the current ballot set.
+     *
+     * @param name The name of the benchmark.
+     * @param numBallots The number of ballots in the set.
+     * @return The operation to time.
+     * @throws IOException If the election file of the parse benchmark can not be written.
+     */
+    private Operation createOperation(String name, int numBallots) throws IOException {
+        if (name.equals("parse")) {
+            File electionFile = File.createTempFile("benchmark-election", ".csv");
+            electionFile.deleteOnExit();
+            new BallotGenerator("STV", numCandidates, numSeats, SEED).write(electionFile.getPath(), numBallots);
+            ArrayList<String> filenames = new ArrayList<>();
+            filenames.add(electionFile.getPath());
+            return new Operation() {
+                public void setup() {
+                }
+
+                public void run() {
+                    BallotLoader loader = new BallotLoader(filenames);
+                    if (!loader.load()) {
+                        throw new IllegalStateException(loader.getError());
+                    }
+                }
+            };
+        }
+        else if (name.equals("plurality") || name.equals("mv")) {
+            boolean plurality = name.equals("plurality");
+            return new Operation() {
+                private DirectSelection election;
+
+                public void setup() {
+                    // the last run's election is released before the next copy is made
+                    election = null;
+                    election = plurality ? createPlurality(numBallots) : createMV(numBallots);
+                }
+
+                public void run() {
+                    election.tabulateVotes();
+                }
+            };
+        }
+        else if (name.equals("stv")) {
+            return new Operation() {
+                private STV election;
+
+                public void setup() {
+                    election = null;
+                    BallotStore ballots = copyBallots(getSTVBallots(numBallots));
+                    election = new STV(false, numSeats, numCandidates, numBallots, toList(ballots), ballots, auditFile.getPath());
+                    election.setDroopQuota(election.calculateDroop(numBallots, numSeats));
+                }
+
+                public void run() {
+                    election.distributeVotes();
+                }
+            };
+        }
+        else if (name.equals("group")) {
+            return new Operation() {
+                private BallotStore ballots;
+
+                public void setup() {
+                    ballots = getSTVBallots(numBallots);
+                }
+
+                public void run() {
+                    BallotGroups.fromStore(ballots);
+                }
+            };
+        }
+        else if (name.equals("winnerLoser")) {
+            return new Operation() {
+                private DirectSelection election;
+
+                public void setup() {
+                    election = null;
+                    election = createPlurality(numBallots);
+                    election.tabulateVotes();
+                }
+
+                public void run() {
+                    election.determine_Winner_Loser();
+                }
+            };
+        }
+        else {
+            return new Operation() {
+                private DirectSelection election;
+
+                public void setup() {
+                    election = null;
+                    election = createPlurality(numBallots);
+                    election.tabulateVotes();
+                    election.determine_Winner_Loser();
+                    auditFile.delete();
+                }
+
+                public void run() {
+                    election.generateAudit("Plurality");
+                }
+            };
+        }
+    }
+
+    /**
+     * Creates a Plurality election over a fresh copy of the Plurality ballots.
+     *
+     * @param numBallots The number of ballots.
+     * @return The election, ready to be tabulated.
+     */
+    private DirectSelection createPlurality(int numBallots) {
+        BallotStore ballots = copyBallots(getPluralityBallots(numBallots));
+        Plurality election = new Plurality(numSeats, numCandidates, numBallots, toList(ballots), ballots, auditFile.getPath());
+        election.setDeterministic();
+        election.setParallelism(Runtime.getRuntime().availableProcessors());
+        return election;
+    }
+
+    /**
+     * Creates an MV election over a fresh copy of the MV ballots.
+     *
+     * @param numBallots The number of ballots.
+     * @return The election, ready to be tabulated.
+     */
+    private DirectSelection createMV(int numBallots) {
+        BallotStore ballots = copyBallots(getMVBallots(numBallots));
+        MV election = new MV(numSeats, numCandidates, numBallots, toList(ballots), ballots, auditFile.getPath());
+        election.setDeterministic();
+        election.setParallelism(Runtime.getRuntime().availableProcessors());
+        return election;
+    }
+
+    /**
+     * Builds the Plurality ballot set on first use.
+     *
+     * @param numBallots The number of ballots.
+     * @return The ballots.
+     */
+    private BallotStore getPluralityBallots(int numBallots) {
+        if (pluralityBallots == null) {
+            pluralityBallots = generateBallots("PV", numBallots);
+        }
+        return pluralityBallots;
+    }
+
+    /**
+     * Builds the MV ballot set on first use.
+     *
+     * @param numBallots The number of ballots.
+     * @return The ballots.
+     */
+    private BallotStore getMVBallots(int numBallots) {
+        if (mvBallots == null) {
+            mvBallots = generateBallots("MV", numBallots);
+        }
+        return mvBallots;
+    }
+
+    /**
+     * Builds the STV ballot set on first use. Every ballot ranks all candidates, since STV stops
+     * with an error once every ranked candidate has been eliminated.
+     *
+     * @param numBallots The number of ballots.
+     * @return The ballots.
+     */
+    private BallotStore getSTVBallots(int numBallots) {
+        if (stvBallots == null) {
+            stvBallots = generateBallots("STV", numBallots);
+        }
+        return stvBallots;
+    }
+
+    /**
+     * Generates a seeded ballot set with uniform preferences.
+     *
+     * @param electionType The type of election, "PV", "MV" or "STV".
+     * @param numBallots The number of ballots.
+     * @return The ballots.
+     */
+    private BallotStore generateBallots(String electionType, int numBallots) {
+        BallotGenerator generator = new BallotGenerator(electionType, numCandidates, numSeats, SEED);
+        int[] ranks = new int[numCandidates];
+        BallotStore ballots = new BallotStore(createColumns(), numBallots);
+        for (int id = 1; id <= numBallots; id++) {
+            generator.nextBallot(ranks);
+            ballots.addBallot(id, ranks);
+        }
+        return ballots;
+    }
+
+    /**
+     * Creates a fresh candidate for every column of a ballot set.
+     *
+     * @return The candidates, named C1 to Cn.
+     */
+    private Candidate[] createColumns() {
+        Candidate[] columns = new Candidate[numCandidates];
+        for (int i = 0; i < numCandidates; i++) {
+            columns[i] = new Candidate("C" + (i + 1));
+        }
+        return columns;
+    }
+
+    /**
+     * Copies a ballot set onto fresh candidates, so each timed run starts from an untouched election.
+     *
+     * @param ballots The ballot set.
+     * @return The copy.
+     */
+    private BallotStore copyBallots(BallotStore ballots) {
+        BallotStore copy = new BallotStore(createColumns(), ballots.size());
+        copy.addAll(ballots, 0);
+        return copy;
+    }
+
+    /**
+     * Lists the candidates of a ballot store in column order.
+     *
+     * @param ballots The ballot store.
+     * @return The candidates.
+     */
+    private static ArrayList<Candidate> toList(BallotStore ballots) {
+        ArrayList<Candidate> candidates = new ArrayList<>();
+        for (int column = 0; column < ballots.getNumColumns(); column++) {
+            candidates.add(ballots.getCandidate(column));
+        }
+        return candidates;
+    }
+}
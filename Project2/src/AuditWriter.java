@@ -0,0 +1,220 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Writes election audit files through one large reusable byte buffer. Ballot IDs are
+ * encoded straight into the buffer as decimal digits instead of going through
+ * String.format, and the buffer is flushed once per candidate section. The bytes
+ * written are the same as writing the audit text with a FileWriter.
+ *
+ * @author Zach Larsen
+ */
+public class AuditWriter implements Closeable {
+
+    /** Size of the output buffer in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Longest decimal encoding of an int, including the sign. */
+    private static final int MAX_INT_DIGITS = 11;
+
+    /** Charset used to encode text, the same one a FileWriter uses. */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /** Separator written between ballot IDs. */
+    private static final byte[] SEPARATOR = ", ".getBytes(CHARSET);
+
+    /** Stream of the audit file. */
+    private final OutputStream out;
+
+    /** Bytes waiting to be written to the file. */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** Number of bytes in the buffer. */
+    private int position = 0;
+
+    /**
+     * Opens an audit file for writing, replacing anything already in it.
+     *
+     * @param auditFile The audit file.
+     * @throws IOException If the file can not be opened.
+     */
+    public AuditWriter(File auditFile) throws IOException {
+        out = new FileOutputStream(auditFile);
+    }
+
+    /**
+     * Writes an audit to a stream, such as an in-memory buffer. The stream is closed with the writer.
+     *
+     * @param out The stream that receives the audit.
+     */
+    public AuditWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes text to the audit.
+     *
+     * @param text The text to write.
+     * @throws IOException If the buffer can not be written to the file.
+     */
+    public void write(String text) throws IOException {
+        writeBytes(text.getBytes(CHARSET));
+    }
+
+    /**
+     * Writes a single byte, such as an ASCII separator, to the audit.
+     *
+     * @param value The byte to write.
+     * @throws IOException If the buffer can not be written to the file.
+     */
+    public void writeByte(int value) throws IOException {
+        if (position == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[position] = (byte) value;
+        position++;
+    }
+
+    /**
+     * Writes an int to the audit in decimal without creating a String.
+     *
+     * @param value The value to write.
+     * @throws IOException If the buffer can not be written to the file.
+     */
+    public void writeInt(int value) throws IOException {
+        if (BUFFER_SIZE - position < MAX_INT_DIGITS) {
+            flushBuffer();
+        }
+        if (value == Integer.MIN_VALUE) {
+            write(Integer.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer[position] = '-';
+            position++;
+            value = -value;
+        }
+
+        // Count the digits, then fill them in from the last one
+        int numDigits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            numDigits++;
+        }
+        int index = position + numDigits - 1;
+        do {
+            buffer[index] = (byte) ('0' + value % 10);
+            value /= 10;
+            index--;
+        } while (value > 0);
+        position += numDigits;
+    }
+
+    /**
+     * Writes the order of ballots cast for a candidate as one line from their ballot IDs, then
+     * flushes the section to the file. Nothing is written if the list is empty.
+     *
+     * @param name The name of the candidate.
+     * @param ballotIDs The IDs of the ballots cast for the candidate, in the order they were awarded.
+     * @throws IOException If the buffer can not be written to the file.
+     */
+    public void writeBallotOrder(String name, IntList ballotIDs) throws IOException {
+        if (ballotIDs.size() == 0) {
+            flush();
+            return;
+        }
+        write("Order of ballots cast for " + name + ": ");
+        for (int i = 0; i < ballotIDs.size(); i++) {
+            if (i > 0) {
+                writeBytes(SEPARATOR);
+            }
+            writeInt(ballotIDs.get(i));
+        }
+        write("\n");
+        flush();
+    }
+
+    /**
+     * Writes the order of ballots cast for a candidate from a ballot ID log, reading the IDs
+     * back chunk by chunk, exactly as writeBallotOrder writes the same IDs from a list. Nothing is
+     * written if the candidate's column is empty.
+     *
+     * @param name The name of the candidate.
+     * @param ballotIDs The log holding the IDs of the ballots cast for the candidate.
+     * @param column The candidate's column in the log.
+     * @throws IOException If the buffer can not be written to the file or the log can not be read.
+     */
+    public void writeBallotOrder(String name, BallotIDLog ballotIDs, int column) throws IOException {
+        if (ballotIDs.size(column) == 0) {
+            flush();
+            return;
+        }
+        write("Order of ballots cast for " + name + ": ");
+        BallotIDLog.Reader ids = ballotIDs.reader(column);
+        boolean first = true;
+        while (ids.hasNext()) {
+            if (!first) {
+                writeBytes(SEPARATOR);
+            }
+            writeInt(ids.next());
+            first = false;
+        }
+        write("\n");
+        flush();
+    }
+
+    /**
+     * Copies bytes into the buffer, writing the buffer out whenever it fills.
+     *
+     * @param bytes The bytes to write.
+     * @throws IOException If the buffer can not be written to the file.
+     */
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (position == BUFFER_SIZE) {
+                flushBuffer();
+            }
+            int length = Math.min(bytes.length - offset, BUFFER_SIZE - position);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the file stream.
+     *
+     * @throws IOException If the bytes can not be written.
+     */
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    /**
+     * Writes the buffered bytes to the file.
+     *
+     * @throws IOException If the bytes can not be written.
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes any buffered bytes and closes the file.
+     *
+     * @throws IOException If the file can not be written or closed.
+     */
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Represents a ballot used in an election, containing a unique ballot ID
@@ -61,4 +62,42 @@ public class Ballot {
   public void setRankings(HashMap<Candidate, Integer> rankings) {
     this.rankings = rankings;
   }
+
+  /**
+   * Copies the rank given to each of the specified candidates into an array.
+   *
+   * @param columns The candidates whose ranks are copied, in order.
+   * @param dest The array the ranks are copied into, 0 where a candidate is unranked.
+   * @param offset The position in dest of the first candidate's rank.
+   * @throws NumberFormatException If a rank is too large to be stored.
+   */
+  public void copyRanks(Candidate[] columns, short[] dest, int offset) {
+    for (int i = 0; i < columns.length; i++) {
+      Integer rank = rankings.get(columns[i]);
+      if (rank == null) {
+        dest[offset + i] = 0;
+      }
+      else if (rank < Short.MIN_VALUE || rank > Short.MAX_VALUE) {
+        throw new NumberFormatException("Ranking out of range on ballot " + ballotID);
+      }
+      else {
+        dest[offset + i] = rank.shortValue();
+      }
+    }
+  }
+
+  /**
+   * Retrieves the candidate given the specified rank on this ballot.
+   *
+   * @param rank The rank to look for.
+   * @return The candidate at that rank, or null if no candidate was given that rank.
+   */
+  public Candidate getRankCandidate(int rank) {
+    for (Map.Entry<Candidate, Integer> entry : rankings.entrySet()) {
+      if (entry.getValue() == rank) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
 }
\ No newline at end of file
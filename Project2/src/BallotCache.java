@@ -0,0 +1,425 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Scanner;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary copy of the parsed ballots of an election, so a recount of the same election files
+ * does not parse the CSV text again. The cache holds the election header, the candidate line,
+ * the size and modification time of every source file, then the ballot IDs and the packed rank
+ * matrix exactly as a BallotStore keeps them. A later run memory-maps the cache and copies the
+ * arrays in bulk. The cache is only used when every source file is unchanged and the CRC32C
+ * checksum of its contents matches, otherwise the files are parsed as usual.
+ *
+ * File layout, little-endian:
+ * magic, version, checksum (long), election type, seats, candidates, ballots in the headers,
+ * rows, offset of the ballot IDs, then the sources and candidate line, the ballot IDs as ints
+ * and the ranks as shorts. The checksum covers everything after the checksum field.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class BallotCache {
+
+    /** First four bytes of every ballot cache, "BCF1" in ASCII. */
+    public static final int MAGIC = 0x31464342;
+
+    /** Version of the file layout. */
+    public static final int VERSION = 1;
+
+    /** Size in bytes of the fixed header at the start of the file. */
+    private static final int HEADER_SIZE = 40;
+
+    /** Offset of the checksum in the header. */
+    private static final int CHECKSUM_OFFSET = 8;
+
+    /** Offset of the first byte covered by the checksum. */
+    private static final int CHECKED_OFFSET = 16;
+
+    /** Largest part of the file that is mapped at one time. */
+    private static final long REGION_SIZE = 1L << 26;
+
+    /** Size of the buffer the cache is written through. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /** Path of the cache file. */
+    private final Path path;
+
+    /** Election type from the cached header, 0 for Plurality, 1 for STV, 2 for MV. */
+    private int electionType;
+
+    /** Number of seats from the cached header. */
+    private int numSeats;
+
+    /** Number of candidates from the cached header. */
+    private int numCandidates;
+
+    /** Total number of ballots given in the headers of the source files. */
+    private int numBallots;
+
+    /** Candidates named in the cached candidate line. */
+    private ArrayList<Candidate> candidates;
+
+    /** Ballots read from the cache. */
+    private BallotStore ballots;
+
+    /**
+     * Constructs a cache stored in the given file.
+     *
+     * @param filename Path of the cache file.
+     */
+    public BallotCache(String filename) {
+        path = Path.of(filename);
+    }
+
+    /**
+     * Names the cache file for a list of election files, which is the first election file
+     * with its .csv extension replaced by .cache.
+     *
+     * @param filenames The election filenames, in the order they were entered.
+     * @return The filename of the cache.
+     */
+    public static String cacheFileFor(ArrayList<String> filenames) {
+        String first = filenames.getFirst();
+        if (first.endsWith(".csv")) {
+            first = first.substring(0, first.length() - ".csv".length());
+        }
+        return first + ".cache";
+    }
+
+    /**
+     * Writes the ballots of a loaded election to the cache. The cache is written to a temporary
+     * file first and then moved into place, so a cache that is being written is never read.
+     *
+     * @param sources The election files the ballots were read from.
+     * @param loader A loader that has loaded those files.
+     * @throws IOException If the cache can not be written.
+     */
+    public void write(ArrayList<String> sources, BallotLoader loader) throws IOException {
+        BallotStore store = loader.getBallots();
+        int numColumns = store.getNumColumns();
+        int numRows = store.size();
+        byte[] meta = writeMeta(sources, loader.getCandidateLine());
+        int dataOffset = align(HEADER_SIZE + meta.length);
+
+        // a temporary file of its own, so elections cached at the same time do not collide
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32C checksum = new CRC32C();
+            int capacity = Math.max(Math.max(BUFFER_SIZE, dataOffset), 2 * numColumns);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+
+            // header, with the checksum filled in once everything else is written
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+            buffer.putInt(loader.getElectionType()).putInt(loader.getNumSeats());
+            buffer.putInt(loader.getNumCandidates()).putInt(loader.getNumBallots());
+            buffer.putInt(numRows).putInt(dataOffset);
+            buffer.put(meta);
+            while (buffer.position() < dataOffset) {
+                buffer.put((byte) 0);
+            }
+            flush(channel, buffer, checksum, CHECKED_OFFSET);
+
+            int row = 0;
+            while (row < numRows) {
+                int count = Math.min(numRows - row, buffer.remaining() / Integer.BYTES);
+                store.copyBallotIDs(row, count, buffer.asIntBuffer());
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                flush(channel, buffer, checksum, 0);
+                row += count;
+            }
+
+            int rowBytes = numColumns * Short.BYTES;
+            row = 0;
+            while (row < numRows && rowBytes > 0) {
+                int count = Math.min(numRows - row, buffer.remaining() / rowBytes);
+                store.copyRanks(row, count, buffer.asShortBuffer());
+                buffer.position(buffer.position() + count * rowBytes);
+                flush(channel, buffer, checksum, 0);
+                row += count;
+            }
+
+            ByteBuffer value = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            value.putLong(checksum.getValue()).flip();
+            while (value.hasRemaining()) {
+                channel.write(value, CHECKSUM_OFFSET + value.position());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the cache if it was written from the given election files and they have not
+     * changed since. A missing, stale or damaged cache is not an error, it just is not used.
+     *
+     * @param sources The election files, in the order they were entered.
+     * @return true if the ballots were read from the cache, false if the files must be parsed.
+     * @throws IOException If the cache exists but can not be read.
+     */
+    public boolean read(ArrayList<String> sources) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                return false;
+            }
+            CRC32C checksum = new CRC32C();
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return false;
+            }
+            long expected = header.getLong(CHECKSUM_OFFSET);
+            int type = header.getInt(16);
+            int seats = header.getInt(20);
+            int candidateCount = header.getInt(24);
+            int ballotCount = header.getInt(28);
+            int numRows = header.getInt(32);
+            int dataOffset = header.getInt(36);
+            if (numRows < 0 || dataOffset < HEADER_SIZE || dataOffset % Integer.BYTES != 0 || dataOffset > fileSize) {
+                return false;
+            }
+            checksum.update(header.position(CHECKED_OFFSET));
+
+            ByteBuffer meta = map(channel, HEADER_SIZE, dataOffset - HEADER_SIZE);
+            checksum.update(meta.duplicate());
+            String candidateLine = readMeta(meta, sources);
+            if (candidateLine == null) {
+                return false;
+            }
+            ArrayList<Candidate> cachedCandidates = Main.readCandidates(new Scanner(candidateLine));
+            Candidate[] columns = cachedCandidates.toArray(new Candidate[0]);
+            long numRanks = (long) numRows * columns.length;
+            if (numRanks > Integer.MAX_VALUE - 8
+                    || fileSize != dataOffset + (long) numRows * Integer.BYTES + numRanks * Short.BYTES) {
+                return false;
+            }
+
+            int[] ballotIDs = new int[Math.max(numRows, 1)];
+            long position = dataOffset;
+            int row = 0;
+            while (row < numRows) {
+                int count = (int) Math.min(numRows - row, REGION_SIZE / Integer.BYTES);
+                ByteBuffer region = map(channel, position, (long) count * Integer.BYTES);
+                checksum.update(region.duplicate());
+                region.asIntBuffer().get(ballotIDs, row, count);
+                position += (long) count * Integer.BYTES;
+                row += count;
+            }
+
+            short[] ranks = new short[(int) Math.max(numRanks, 1)];
+            int rowBytes = columns.length * Short.BYTES;
+            row = 0;
+            while (row < numRows && rowBytes > 0) {
+                int count = (int) Math.min(numRows - row, Math.max(REGION_SIZE / rowBytes, 1));
+                ByteBuffer region = map(channel, position, (long) count * rowBytes);
+                checksum.update(region.duplicate());
+                region.asShortBuffer().get(ranks, row * columns.length, count * columns.length);
+                position += (long) count * rowBytes;
+                row += count;
+            }
+
+            if (checksum.getValue() != expected) {
+                return false;
+            }
+            electionType = type;
+            numSeats = seats;
+            numCandidates = candidateCount;
+            numBallots = ballotCount;
+            candidates = cachedCandidates;
+            ballots = BallotStore.fromArrays(columns, ballotIDs, ranks, numRows);
+            return true;
+        }
+    }
+
+    /**
+     * Encodes the source files and the candidate line.
+     *
+     * @param sources The election files the ballots were read from.
+     * @param candidateLine The candidate line of the election files.
+     * @return The encoded bytes.
+     * @throws IOException If a source file can not be looked up.
+     */
+    private static byte[] writeMeta(ArrayList<String> sources, String candidateLine) throws IOException {
+        ArrayList<byte[]> names = new ArrayList<>();
+        int size = Integer.BYTES;
+        for (String source : sources) {
+            byte[] name = source.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += Integer.BYTES + name.length + 2 * Long.BYTES;
+        }
+        byte[] line = candidateLine.getBytes(StandardCharsets.UTF_8);
+        size += Integer.BYTES + line.length;
+
+        ByteBuffer meta = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        meta.putInt(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            Path source = Path.of(sources.get(i));
+            meta.putInt(names.get(i).length).put(names.get(i));
+            meta.putLong(Files.size(source));
+            meta.putLong(Files.getLastModifiedTime(source).toMillis());
+        }
+        meta.putInt(line.length).put(line);
+        return meta.array();
+    }
+
+    /**
+     * Decodes the source files and the candidate line, checking that the sources are the
+     * given election files and have not changed.
+     *
+     * @param meta The encoded bytes.
+     * @param sources The election files, in the order they were entered.
+     * @return The candidate line, or null if the sources do not match.
+     * @throws IOException If a source file can not be looked up.
+     */
+    private static String readMeta(ByteBuffer meta, ArrayList<String> sources) throws IOException {
+        try {
+            if (meta.getInt() != sources.size()) {
+                return null;
+            }
+            for (String source : sources) {
+                String name = readString(meta);
+                long size = meta.getLong();
+                long modified = meta.getLong();
+                Path file = Path.of(source);
+                if (name == null || !name.equals(source) || !Files.isRegularFile(file)
+                        || Files.size(file) != size || Files.getLastModifiedTime(file).toMillis() != modified) {
+                    return null;
+                }
+            }
+            return readString(meta);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a length-prefixed UTF-8 string.
+     *
+     * @param meta The encoded bytes, positioned at the length.
+     * @return The string, or null if the length is not valid.
+     */
+    private static String readString(ByteBuffer meta) {
+        int length = meta.getInt();
+        if (length < 0 || length > meta.remaining()) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        meta.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes out the contents of the buffer, adding the bytes from the given position on to the checksum.
+     *
+     * @param channel The channel of the cache being written.
+     * @param buffer The buffer, which is empty afterwards.
+     * @param checksum The checksum of the cache.
+     * @param checkedFrom The first byte of the buffer covered by the checksum.
+     * @throws IOException If the buffer can not be written.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32C checksum, int checkedFrom) throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate().position(checkedFrom));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Maps part of the cache file for reading.
+     *
+     * @param channel The channel of the cache.
+     * @param position The offset of the part in the file.
+     * @param size The size of the part in bytes.
+     * @return The mapped bytes, little-endian.
+     * @throws IOException If the part can not be mapped.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Rounds an offset up to a multiple of four bytes, so the ballot IDs are aligned.
+     *
+     * @param offset The offset.
+     * @return The aligned offset.
+     */
+    private static int align(int offset) {
+        return (offset + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES;
+    }
+
+    /**
+     * Retrieves the election type from the cached header.
+     *
+     * @return 0 for Plurality, 1 for STV, 2 for MV.
+     */
+    public int getElectionType() {
+        return electionType;
+    }
+
+    /**
+     * Retrieves the number of seats from the cached header.
+     *
+     * @return The number of seats.
+     */
+    public int getNumSeats() {
+        return numSeats;
+    }
+
+    /**
+     * Retrieves the number of candidates from the cached header.
+     *
+     * @return The number of candidates.
+     */
+    public int getNumCandidates() {
+        return numCandidates;
+    }
+
+    /**
+     * Retrieves the total number of ballots given in the headers of the source files.
+     *
+     * @return The number of ballots.
+     */
+    public int getNumBallots() {
+        return numBallots;
+    }
+
+    /**
+     * Retrieves the candidates named in the cached candidate line.
+     *
+     * @return The list of candidates.
+     */
+    public ArrayList<Candidate> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Retrieves the ballots read from the cache.
+     *
+     * @return A BallotStore holding every cached ballot.
+     */
+    public BallotStore getBallots() {
+        return ballots;
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.Arrays;
+
+/**
+ * Ballots of a BallotStore grouped by identical rankings. In real elections a small number of
+ * distinct rankings covers most ballots, so tabulating each group once and weighting it by the
+ * number of ballots in it cuts most of the work. The rows of each group are kept in store order,
+ * so the original ballot IDs are still available for the audit.
+ *
+ * @author Zach Larsen
+ */
+public class BallotGroups {
+
+    /** The store whose rows are grouped. */
+    private final BallotStore store;
+
+    /** Group of each row. */
+    private final int[] rowGroups;
+
+    /** First row of each group, whose rankings stand for the whole group. */
+    private final int[] representatives;
+
+    /** Start of each group's rows in groupRows, with one extra entry marking the end. */
+    private final int[] groupStarts;
+
+    /** Rows of every group, one group after another, each in store order. */
+    private final int[] groupRows;
+
+    /**
+     * Groups are built with fromStore.
+     *
+     * @param store The store whose rows are grouped.
+     * @param rowGroups Group of each row.
+     * @param representatives First row of each group.
+     */
+    private BallotGroups(BallotStore store, int[] rowGroups, int[] representatives) {
+        this.store = store;
+        this.rowGroups = rowGroups;
+        this.representatives = representatives;
+
+        // lay the rows out group by group with a counting sort, which keeps them in store order
+        int numGroups = representatives.length;
+        groupStarts = new int[numGroups + 1];
+        for (int group : rowGroups) {
+            groupStarts[group + 1]++;
+        }
+        for (int group = 0; group < numGroups; group++) {
+            groupStarts[group + 1] += groupStarts[group];
+        }
+        groupRows = new int[rowGroups.length];
+        int[] next = Arrays.copyOf(groupStarts, numGroups);
+        for (int row = 0; row < rowGroups.length; row++) {
+            groupRows[next[rowGroups[row]]] = row;
+            next[rowGroups[row]]++;
+        }
+    }
+
+    /**
+     * Groups the rows of a store by identical rankings. Groups are numbered in the order their
+     * first row appears. Rows are compared in place through an open-addressing table, so no
+     * object is created per ballot.
+     *
+     * @param store The store to group.
+     * @return The groups of the store's rows.
+     */
+    public static BallotGroups fromStore(BallotStore store) {
+        int numRows = store.size();
+        int[] rowGroups = new int[numRows];
+        IntList representatives = new IntList();
+
+        // table of group numbers plus one, 0 for an empty slot, kept at most half full
+        int[] table = new int[16];
+        for (int row = 0; row < numRows; row++) {
+            if (representatives.size() * 2 >= table.length) {
+                table = rehash(store, representatives, table.length * 2);
+            }
+            int mask = table.length - 1;
+            int slot = mix(store.hashRanks(row)) & mask;
+            while (table[slot] != 0 && !store.sameRanks(representatives.get(table[slot] - 1), row)) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == 0) {
+                representatives.add(row);
+                table[slot] = representatives.size();
+            }
+            rowGroups[row] = table[slot] - 1;
+        }
+        return new BallotGroups(store, rowGroups, representatives.toArray());
+    }
+
+    /**
+     * Builds a larger table holding every group so far.
+     *
+     * @param store The store being grouped.
+     * @param representatives First row of each group so far.
+     * @param capacity The size of the new table, a power of two.
+     * @return The new table.
+     */
+    private static int[] rehash(BallotStore store, IntList representatives, int capacity) {
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int group = 0; group < representatives.size(); group++) {
+            int slot = mix(store.hashRanks(representatives.get(group))) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = group + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Spreads the bits of a hash so that nearby hashes land in different table slots.
+     *
+     * @param hash The hash of a row.
+     * @return The mixed hash.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Retrieves the store whose rows are grouped.
+     *
+     * @return The ballot store.
+     */
+    public BallotStore getStore() {
+        return store;
+    }
+
+    /**
+     * Retrieves the number of groups.
+     *
+     * @return The number of distinct rankings.
+     */
+    public int size() {
+        return representatives.length;
+    }
+
+    /**
+     * Retrieves the group a row belongs to.
+     *
+     * @param row The row of the ballot.
+     * @return The group of the row.
+     */
+    public int getGroup(int row) {
+        return rowGroups[row];
+    }
+
+    /**
+     * Retrieves the row whose rankings stand for a group, which is the group's first row.
+     *
+     * @param group The group.
+     * @return The first row of the group.
+     */
+    public int getRepresentative(int group) {
+        return representatives[group];
+    }
+
+    /**
+     * Retrieves the number of ballots in a group, which is the group's weight when tabulating.
+     *
+     * @param group The group.
+     * @return The number of rows in the group.
+     */
+    public int getCount(int group) {
+        return groupStarts[group + 1] - groupStarts[group];
+    }
+
+    /**
+     * Retrieves one of a group's rows.
+     *
+     * @param group The group.
+     * @param index The position of the row in the group, from 0 to getCount(group) - 1.
+     * @return The row, with the rows of a group in store order.
+     */
+    public int getRow(int group, int index) {
+        return groupRows[groupStarts[group] + index];
+    }
+}
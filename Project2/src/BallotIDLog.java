@@ -0,0 +1,381 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * The IDs of the ballots awarded to each candidate column, in the order they were awarded,
+ * with bounded memory. Each column buffers its IDs in memory, and whenever a buffer fills up
+ * it is appended to a temporary spill file as one fixed-size chunk. The IDs of a column are
+ * read back chunk by chunk, so neither counting nor writing the audit ever holds a whole
+ * column in memory. Logs are joined by appending whole logs, such as one per election file,
+ * whose IDs are read after this log's own with an offset added, so nothing is copied or
+ * spilled again. The spill file is deleted when the log is closed, or once the log is no
+ * longer reachable if it was never closed.
+ *
+ * @author Zach Larsen
+ */
+public final class BallotIDLog implements Closeable {
+
+    /** Default number of IDs buffered per column before they are spilled. */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    /** Deletes the spill files of logs that were not closed. */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * Reads the IDs of one column in the order they were awarded, then those of each
+     * appended log.
+     */
+    public class Reader {
+
+        /** Chunks of the column in the spill file, in order. */
+        private final IntList chunks;
+
+        /** IDs of the column still in memory, read after every chunk. */
+        private final IntList buffer;
+
+        /** IDs of the chunk being read. */
+        private final int[] current;
+
+        /** Index of the next chunk to read. */
+        private int nextChunk = 0;
+
+        /** Number of IDs in current. */
+        private int currentSize = 0;
+
+        /** Position of the next ID in current. */
+        private int position = 0;
+
+        /** Whether current holds the in-memory buffer. */
+        private boolean readBuffer = false;
+
+        /** Whether every ID of this log's own chunks and buffer has been read. */
+        private boolean ownRead = false;
+
+        /** Index of the next appended log to read. */
+        private int nextLog = 0;
+
+        /** Reader of the appended log being read, or null before the first one. */
+        private Reader appendedIDs;
+
+        /** Offset added to the IDs of the appended log being read. */
+        private int appendedOffset;
+
+        /** Column being read. */
+        private final int column;
+
+        /**
+         * Constructs a reader at the first ID of a column.
+         *
+         * @param column The candidate column.
+         */
+        Reader(int column) {
+            this.column = column;
+            chunks = spilledChunks[column];
+            buffer = buffers[column];
+            current = new int[chunkSize];
+        }
+
+        /**
+         * Checks if there is another ID.
+         *
+         * @return true if next will return an ID.
+         * @throws IOException If the next chunk can not be read from the spill file.
+         */
+        public boolean hasNext() throws IOException {
+            while (!ownRead && position == currentSize) {
+                if (nextChunk < chunks.size()) {
+                    readChunk(chunks.get(nextChunk), current);
+                    nextChunk++;
+                    currentSize = chunkSize;
+                }
+                else if (!readBuffer) {
+                    readBuffer = true;
+                    for (int i = 0; i < buffer.size(); i++) {
+                        current[i] = buffer.get(i);
+                    }
+                    currentSize = buffer.size();
+                }
+                else {
+                    ownRead = true;
+                    break;
+                }
+                position = 0;
+            }
+            if (!ownRead) {
+                return true;
+            }
+            while (appendedIDs == null || !appendedIDs.hasNext()) {
+                if (nextLog == appended.size()) {
+                    return false;
+                }
+                appendedIDs = appended.get(nextLog).reader(column);
+                appendedOffset = idOffsets.get(nextLog);
+                nextLog++;
+            }
+            return true;
+        }
+
+        /**
+         * Reads the next ID. hasNext must have returned true.
+         *
+         * @return The ballot ID.
+         */
+        public int next() {
+            if (ownRead) {
+                return appendedIDs.next() + appendedOffset;
+            }
+            int id = current[position];
+            position++;
+            return id;
+        }
+    }
+
+    /**
+     * The spill file of a log, kept apart from the log so it can be deleted once the log is unreachable.
+     */
+    private static class SpillFile implements Runnable {
+
+        /** Path of the spill file, or null until the first chunk is spilled. */
+        Path path;
+
+        /** Channel of the spill file, or null until the first chunk is spilled. */
+        FileChannel channel;
+
+        /**
+         * Closes and deletes the spill file.
+         */
+        public void run() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                if (path != null) {
+                    Files.deleteIfExists(path);
+                    path = null;
+                }
+            } catch (IOException e) {
+                // the file is in the temporary directory, so it is left for the system to remove
+            }
+        }
+    }
+
+    /** Number of IDs in each chunk of the spill file. */
+    private final int chunkSize;
+
+    /** IDs of each column that have not been spilled, in the order they were awarded. */
+    private final IntList[] buffers;
+
+    /** Chunk numbers of each column in the spill file, in order. */
+    private final IntList[] spilledChunks;
+
+    /** The spill file, created on the first spill. */
+    private final SpillFile spill = new SpillFile();
+
+    /** Deletes the spill file when the log is closed or unreachable. */
+    private final Cleaner.Cleanable cleanable;
+
+    /** Number of chunks in the spill file. */
+    private int numChunks = 0;
+
+    /** Buffer a chunk is encoded into before it is written, or decoded from after it is read. */
+    private final ByteBuffer chunkBytes;
+
+    /** Logs appended to this one, read in order after this log's own IDs. */
+    private final ArrayList<BallotIDLog> appended = new ArrayList<>();
+
+    /** Offset added to the IDs of each appended log. */
+    private final IntList idOffsets = new IntList();
+
+    /**
+     * Constructs an empty log with the default chunk size.
+     *
+     * @param numColumns The number of candidate columns.
+     */
+    public BallotIDLog(int numColumns) {
+        this(numColumns, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs an empty log that spills each column every chunkSize IDs.
+     *
+     * @param numColumns The number of candidate columns.
+     * @param chunkSize The number of IDs buffered per column before they are spilled.
+     */
+    public BallotIDLog(int numColumns, int chunkSize) {
+        this.chunkSize = Math.max(chunkSize, 1);
+        buffers = new IntList[numColumns];
+        spilledChunks = new IntList[numColumns];
+        for (int column = 0; column < numColumns; column++) {
+            buffers[column] = new IntList();
+            spilledChunks[column] = new IntList();
+        }
+        chunkBytes = ByteBuffer.allocate(this.chunkSize * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        cleanable = CLEANER.register(this, spill);
+    }
+
+    /**
+     * Appends the ID of a ballot awarded to a column.
+     *
+     * @param column The candidate column.
+     * @param ballotID The ballot ID.
+     * @throws IOException If a full buffer can not be spilled.
+     * @throws IllegalStateException If another log has been appended, since its IDs come after this one's.
+     */
+    public void add(int column, int ballotID) throws IOException {
+        if (!appended.isEmpty()) {
+            throw new IllegalStateException("Ballot IDs can not be added after a log is appended.");
+        }
+        IntList buffer = buffers[column];
+        buffer.add(ballotID);
+        if (buffer.size() == chunkSize) {
+            spill(column);
+        }
+    }
+
+    /**
+     * Appends every ID of another log with the same columns, shifted by idOffset, such as
+     * the log of the next election file. The other log's chunks stay in its own spill file
+     * and the offset is added as they are read, so no ID is copied. This log takes over the
+     * other log and closes it when it is closed, and no IDs can be added to it afterwards.
+     *
+     * @param other The log whose IDs are appended.
+     * @param idOffset The amount added to each appended ID.
+     */
+    public void append(BallotIDLog other, int idOffset) {
+        appended.add(other);
+        idOffsets.add(idOffset);
+    }
+
+    /**
+     * Retrieves the number of IDs of a column.
+     *
+     * @param column The candidate column.
+     * @return The number of IDs.
+     */
+    public int size(int column) {
+        int size = spilledChunks[column].size() * chunkSize + buffers[column].size();
+        for (BallotIDLog log : appended) {
+            size += log.size(column);
+        }
+        return size;
+    }
+
+    /**
+     * Retrieves the number of chunks spilled to the spill files of this log and the logs appended to it.
+     *
+     * @return The number of chunks.
+     */
+    public int getNumChunks() {
+        int chunks = numChunks;
+        for (BallotIDLog log : appended) {
+            chunks += log.getNumChunks();
+        }
+        return chunks;
+    }
+
+    /**
+     * Retrieves the path of this log's own spill file, not those of appended logs.
+     *
+     * @return The path, or null if nothing has been spilled or the log is closed.
+     */
+    Path getSpillFile() {
+        return spill.path;
+    }
+
+    /**
+     * Opens a reader at the first ID of a column.
+     *
+     * @param column The candidate column.
+     * @return The reader.
+     */
+    public Reader reader(int column) {
+        return new Reader(column);
+    }
+
+    /**
+     * Copies the IDs of a column into memory, for columns known to be small.
+     *
+     * @param column The candidate column.
+     * @return The IDs in the order they were awarded.
+     */
+    public IntList toIntList(int column) {
+        IntList list = new IntList(size(column));
+        try {
+            Reader ids = reader(column);
+            while (ids.hasNext()) {
+                list.add(ids.next());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return list;
+    }
+
+    /**
+     * Closes and deletes the spill file, and those of the appended logs. The log must not be
+     * used afterwards.
+     */
+    public void close() {
+        cleanable.clean();
+        for (BallotIDLog log : appended) {
+            log.close();
+        }
+    }
+
+    /**
+     * Writes the buffer of a column to the end of the spill file as one chunk and empties it.
+     *
+     * @param column The candidate column.
+     * @throws IOException If the spill file can not be created or written.
+     */
+    private void spill(int column) throws IOException {
+        if (spill.channel == null) {
+            spill.path = Files.createTempFile("ballot-ids", ".bin");
+            spill.channel = FileChannel.open(spill.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        IntList buffer = buffers[column];
+        chunkBytes.clear();
+        IntBuffer ints = chunkBytes.asIntBuffer();
+        for (int i = 0; i < buffer.size(); i++) {
+            ints.put(buffer.get(i));
+        }
+        long position = (long) numChunks * chunkBytes.capacity();
+        while (chunkBytes.hasRemaining()) {
+            position += spill.channel.write(chunkBytes, position);
+        }
+        spilledChunks[column].add(numChunks);
+        numChunks++;
+        buffer.clear();
+    }
+
+    /**
+     * Reads a chunk back from the spill file.
+     *
+     * @param chunk The chunk number.
+     * @param ids The array that receives the chunk's IDs.
+     * @throws IOException If the spill file can not be read.
+     */
+    private void readChunk(int chunk, int[] ids) throws IOException {
+        chunkBytes.clear();
+        long position = (long) chunk * chunkBytes.capacity();
+        while (chunkBytes.hasRemaining()) {
+            int read = spill.channel.read(chunkBytes, position + chunkBytes.position());
+            if (read == -1) {
+                throw new IOException("The ballot ID spill file ended early.");
+            }
+        }
+        chunkBytes.flip();
+        chunkBytes.asIntBuffer().get(ids, 0, chunkSize);
+    }
+}
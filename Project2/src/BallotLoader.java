@@ -0,0 +1,574 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Reads and validates every election file of an election in parallel, one task per file on
+ * a pool of platform threads no larger than the number of processors, and merges the ballots into a single BallotStore. Every file must have a header
+ * that agrees with the first file. Ballot IDs are numbered in file order after the files are
+ * read, so they are the same as reading the files one after another. Each task's CPU time and
+ * allocations are measured on its worker thread and added to a PhaseMetrics.WorkerUsage.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class BallotLoader {
+
+    /** Filenames of the election files, in the order they were entered. */
+    private final ArrayList<String> filenames;
+
+    /** Election type from the header, 0 for Plurality, 1 for STV, 2 for MV. */
+    private int electionType = -1;
+
+    /** Number of seats from the header. */
+    private int numSeats = -1;
+
+    /** Number of candidates from the header. */
+    private int numCandidates = -1;
+
+    /** Total number of ballots given in the headers of every file. */
+    private int numBallots = -1;
+
+    /** Candidates named in the header of the first file. */
+    private ArrayList<Candidate> candidates;
+
+    /** Ballots of every file, numbered in file order. */
+    private BallotStore ballots;
+
+    /** Candidate line from the header of the first file. */
+    private String candidateLine;
+
+    /** Binary cache of the parsed ballots, or null when the files are always parsed. */
+    private BallotCache cache;
+
+    /** Whether elections that can be counted while they are parsed skip loading the ballots. */
+    private boolean streaming = false;
+
+    /** Whether the ballots of the last load came from the cache. */
+    private boolean fromCache = false;
+
+    /** Description of the problem when loading fails. */
+    private String error;
+
+    /** Where the CPU time and allocations of reading files on worker threads are added. */
+    private PhaseMetrics.WorkerUsage workerUsage = new PhaseMetrics.WorkerUsage();
+
+    /**
+     * Counts the ballots of one election file as they are parsed, for elections that never
+     * need the ballots in a store. Each file gets its own counter, so counters are not shared
+     * between threads.
+     */
+    public interface BallotCounter {
+
+        /**
+         * Counts one ballot.
+         *
+         * @param ballotID The ID of the ballot within its file, numbered from 1.
+         * @param ranks The rankings of the ballot in column order, 0 where a candidate is unranked.
+         *              The array is reused for the next ballot.
+         * @throws IOException If the counter can not store what it counted.
+         */
+        void count(int ballotID, int[] ranks) throws IOException;
+    }
+
+    /**
+     * Header values of one election file, and its ballots once they have been read.
+     */
+    private static class ElectionFile {
+        int electionType;
+        int numSeats;
+        int numCandidates;
+        int numBallots;
+        String candidateLine;
+        BallotStore ballots;
+    }
+
+    /**
+     * Constructs a loader for the given election files.
+     *
+     * @param filenames The election filenames, in the order they were entered.
+     */
+    public BallotLoader(ArrayList<String> filenames) {
+        this.filenames = filenames;
+    }
+
+    /**
+     * Keeps a binary cache of the parsed ballots in the given file. Later loads of the same,
+     * unchanged election files read the cache instead of parsing the files again.
+     *
+     * @param cacheFile The filename of the cache.
+     */
+    public void setCacheFile(String cacheFile) {
+        cache = new BallotCache(cacheFile);
+    }
+
+    /**
+     * Streams the ballots of elections that can be counted while they are parsed, which are
+     * Plurality and MV elections. load then only reads and checks the headers of the files, and the
+     * ballots are read later by stream, so they are never held in memory. Other elections,
+     * and elections read from an up to date cache, are loaded as usual.
+     *
+     * @param streaming true to stream the ballots of elections that support it.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Checks if load only read the headers, leaving the ballots to be read by stream.
+     *
+     * @return true if the ballots are streamed, false if they were loaded.
+     */
+    public boolean isStreaming() {
+        return streaming && ballots == null && canStream(electionType);
+    }
+
+    /**
+     * Sets where the CPU time and allocations of reading files on worker threads are added,
+     * such as the worker usage of the phase that loads or streams the ballots.
+     *
+     * @param workerUsage The usage the file tasks are measured into.
+     */
+    public void setWorkerUsage(PhaseMetrics.WorkerUsage workerUsage) {
+        this.workerUsage = workerUsage;
+    }
+
+    /**
+     * Creates the workers that read the files, one platform thread per file up to the number
+     * of processors. Platform threads report their CPU time and allocations, which virtual
+     * threads do not.
+     *
+     * @return The workers.
+     */
+    private ExecutorService newWorkers() {
+        int threads = Math.min(filenames.size(), Runtime.getRuntime().availableProcessors());
+        return Executors.newFixedThreadPool(Math.max(threads, 1));
+    }
+
+    /**
+     * Checks if an election type can be counted while its ballots are parsed.
+     *
+     * @param electionType The election type from the header.
+     * @return true for Plurality and MV elections.
+     */
+    public static boolean canStream(int electionType) {
+        return electionType == 0 || electionType == 2;
+    }
+
+    /**
+     * Reads the header of the first file, then reads and validates every file on a worker
+     * thread and merges the ballots in file order. When a cache file was set, the
+     * ballots are read from the cache if it is up to date, and the cache is written otherwise.
+     *
+     * @return true if every file was read, false otherwise. getError describes the problem.
+     */
+    public boolean load() {
+        if (filenames.isEmpty()) {
+            error = "No election files were entered.";
+            return false;
+        }
+        if (cache != null && loadCache()) {
+            return true;
+        }
+
+        // The first header decides the election that every other file must match
+        ElectionFile first;
+        try (BallotReader reader = new BallotReader(filenames.getFirst())) {
+            first = readHeader(reader, filenames.getFirst());
+        } catch (IOException e) {
+            error = "Could not read election file " + filenames.getFirst();
+            return false;
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+            return false;
+        }
+        electionType = first.electionType;
+        numSeats = first.numSeats;
+        numCandidates = first.numCandidates;
+        candidateLine = first.candidateLine;
+        candidates = Main.readCandidates(new Scanner(first.candidateLine));
+        Candidate[] columns = candidates.toArray(new Candidate[0]);
+        if (streaming && canStream(electionType)) {
+            return loadHeaders(first);
+        }
+
+        // Read and validate each file on its own worker
+        ArrayList<Future<ElectionFile>> files = new ArrayList<>();
+        PhaseMetrics.WorkerUsage usage = workerUsage;
+        try (ExecutorService workers = newWorkers()) {
+            for (String filename : filenames) {
+                files.add(workers.submit(() -> usage.measure(() -> readFile(filename, first, columns))));
+            }
+
+            // Merge the files in order so ballot IDs continue from one file to the next. The
+            // headers' counts are not checked against the files, so the merged store is sized
+            // from the ballots actually read
+            ArrayList<ElectionFile> read = new ArrayList<>();
+            long numRows = 0;
+            numBallots = 0;
+            for (Future<ElectionFile> file : files) {
+                ElectionFile electionFile = file.get();
+                read.add(electionFile);
+                numRows += electionFile.ballots.size();
+                numBallots += electionFile.numBallots;
+            }
+            ballots = new BallotStore(columns, (int) Math.min(numRows, Integer.MAX_VALUE));
+            for (ElectionFile electionFile : read) {
+                ballots.addAll(electionFile.ballots, ballots.size());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                error = "Could not read election file " + e.getCause().getMessage();
+            }
+            else {
+                error = e.getCause().getMessage();
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Interrupted while reading the election files.";
+            return false;
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+            return false;
+        }
+
+        if (numBallots < 1) {
+            error = "Invalid number of ballots entered in file.";
+            return false;
+        }
+
+        if (cache != null) {
+            try {
+                cache.write(filenames, this);
+            } catch (IOException e) {
+                // the cache only speeds up later runs, so the election goes ahead without it
+                System.err.println("Could not write the ballot cache: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads and checks the header of every file without reading their ballots, adding up
+     * the number of ballots the headers give.
+     *
+     * @param first The header of the first election file.
+     * @return true if every header was valid, false otherwise. getError describes the problem.
+     */
+    private boolean loadHeaders(ElectionFile first) {
+        numBallots = 0;
+        for (String filename : filenames) {
+            try (BallotReader reader = new BallotReader(filename)) {
+                ElectionFile file = readHeader(reader, filename);
+                checkHeader(file, first, filename);
+                numBallots += file.numBallots;
+            } catch (IOException e) {
+                error = "Could not read election file " + filename;
+                return false;
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+                return false;
+            }
+        }
+        if (numBallots < 1) {
+            error = "Invalid number of ballots entered in file.";
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the ballots of every file on a worker thread and hands each one to the
+     * counter of its file, without keeping any ballot. Ballots are checked just as load checks
+     * them. Used once load has read the headers of a streamed election.
+     *
+     * @param counters Creates the counter of each file.
+     * @param <C> The type of the counters.
+     * @return The counters in file order, or null if a file could not be read. getError describes the problem.
+     */
+    public <C extends BallotCounter> ArrayList<C> stream(Supplier<C> counters) {
+        ArrayList<Future<C>> files = new ArrayList<>();
+        ArrayList<C> counted = new ArrayList<>();
+        PhaseMetrics.WorkerUsage usage = workerUsage;
+        try (ExecutorService workers = newWorkers()) {
+            for (String filename : filenames) {
+                C counter = counters.get();
+                files.add(workers.submit(() -> usage.measure(() -> streamFile(filename, counter))));
+            }
+            for (Future<C> file : files) {
+                counted.add(file.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                error = "Could not read election file " + e.getCause().getMessage();
+            }
+            else {
+                error = e.getCause().getMessage();
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Interrupted while reading the election files.";
+            return null;
+        }
+        return counted;
+    }
+
+    /**
+     * Reads the ballots of one file into its counter, numbering them from 1.
+     *
+     * @param filename The election file.
+     * @param counter The counter of the file.
+     * @param <C> The type of the counter.
+     * @return The counter.
+     * @throws IOException If the file can not be read.
+     * @throws IllegalArgumentException If a ballot is invalid.
+     */
+    private <C extends BallotCounter> C streamFile(String filename, C counter) throws IOException {
+        ElectionEvents.Parse event = new ElectionEvents.Parse();
+        event.begin();
+        try (BallotReader reader = new BallotReader(filename)) {
+            reader.skipLines(BallotReader.HEADER_LINES);
+            int[] ranks = new int[candidates.size()];
+            int ballotID = 1;
+            while (reader.readBallot(ranks)) {
+                for (int rank : ranks) {
+                    if (rank < Short.MIN_VALUE || rank > Short.MAX_VALUE) {
+                        throw new NumberFormatException("Ranking out of range on ballot " + ballotID);
+                    }
+                }
+                counter.count(ballotID, ranks);
+                ballotID++;
+            }
+            if (event.shouldCommit()) {
+                event.filename = filename;
+                event.bytes = new File(filename).length();
+                event.ballots = ballotID - 1;
+                event.commit();
+            }
+            return counter;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ballot in " + filename + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the header of an election file matches the first file.
+     *
+     * @param file The header of the file.
+     * @param first The header of the first election file.
+     * @param filename The name of the file, used in the error message.
+     * @throws IllegalArgumentException If the headers do not match.
+     */
+    private static void checkHeader(ElectionFile file, ElectionFile first, String filename) {
+        if (file.electionType != first.electionType || file.numSeats != first.numSeats
+                || file.numCandidates != first.numCandidates || !file.candidateLine.equals(first.candidateLine)) {
+            throw new IllegalArgumentException("The header of " + filename + " does not match the first election file.");
+        }
+    }
+
+    /**
+     * Reads the election from the cache if it is up to date with the election files.
+     *
+     * @return true if the election was read from the cache, false if the files must be parsed.
+     */
+    private boolean loadCache() {
+        try {
+            if (!cache.read(filenames)) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        electionType = cache.getElectionType();
+        numSeats = cache.getNumSeats();
+        numCandidates = cache.getNumCandidates();
+        numBallots = cache.getNumBallots();
+        candidates = cache.getCandidates();
+        ballots = cache.getBallots();
+        fromCache = true;
+        return true;
+    }
+
+    /**
+     * Reads and validates the header of an election file.
+     *
+     * @param reader A reader at the start of the election file.
+     * @param filename The name of the election file, used in error messages.
+     * @return The values in the header.
+     * @throws IOException If the file can not be read.
+     * @throws IllegalArgumentException If a header value is invalid.
+     */
+    private static ElectionFile readHeader(BallotReader reader, String filename) throws IOException {
+        String[] lines = new String[BallotReader.HEADER_LINES];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = reader.readLine();
+            if (lines[i] == null) {
+                throw new IllegalArgumentException("The header of " + filename + " is incomplete.");
+            }
+        }
+
+        ElectionFile header = new ElectionFile();
+        header.electionType = Main.parseElectionType(new Scanner(lines[0]));
+        if (header.electionType == -1) {
+            throw new IllegalArgumentException("Invalid election type in " + filename + ".");
+        }
+        header.numSeats = Main.parseNumSeats(new Scanner(lines[1]));
+        if (header.numSeats == -1) {
+            throw new IllegalArgumentException("Invalid number of seats entered in " + filename + ".");
+        }
+        header.numCandidates = Main.parseNumCandidates(new Scanner(lines[2]));
+        if (header.numCandidates == -1) {
+            throw new IllegalArgumentException("Invalid number of candidates entered in " + filename + ".");
+        }
+        try {
+            header.numBallots = Integer.parseInt(lines[3]);
+        } catch (NumberFormatException e) {
+            header.numBallots = -1;
+        }
+        if (header.numBallots < 0) {
+            throw new IllegalArgumentException("Invalid number of ballots entered in " + filename + ".");
+        }
+        header.candidateLine = lines[4];
+        return header;
+    }
+
+    /**
+     * Reads one election file, checking its header against the first file and
+     * numbering its ballots from 1.
+     *
+     * @param filename The election file.
+     * @param first The header of the first election file.
+     * @param columns The candidates of the election in column order.
+     * @return The header and ballots of the file.
+     * @throws IOException If the file can not be read.
+     * @throws IllegalArgumentException If the header is invalid, does not match the first file, or a ballot is invalid.
+     */
+    private static ElectionFile readFile(String filename, ElectionFile first, Candidate[] columns) throws IOException {
+        ElectionEvents.Parse event = new ElectionEvents.Parse();
+        event.begin();
+        try (BallotReader reader = new BallotReader(filename)) {
+            ElectionFile file = readHeader(reader, filename);
+            checkHeader(file, first, filename);
+
+            file.ballots = new BallotStore(columns, initialCapacity(file.numBallots, new File(filename).length(), columns.length));
+            int[] ranks = new int[columns.length];
+            int ballotID = 1;
+            while (reader.readBallot(ranks)) {
+                file.ballots.addBallot(ballotID, ranks);
+                ballotID++;
+            }
+            if (event.shouldCommit()) {
+                event.filename = filename;
+                event.bytes = new File(filename).length();
+                event.ballots = file.ballots.size();
+                event.commit();
+            }
+            return file;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ballot in " + filename + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Works out how many ballots to make room for before a file is read. The header's count is
+     * only a hint, since it is not checked against the file, so it is capped by the most ballot
+     * lines the file could hold, each taking at least one byte per candidate column.
+     *
+     * @param headerBallots The number of ballots the header gives.
+     * @param fileBytes The length of the file in bytes.
+     * @param numColumns The number of candidate columns.
+     * @return The number of ballots to make room for.
+     */
+    static int initialCapacity(int headerBallots, long fileBytes, int numColumns) {
+        long mostLines = fileBytes / Math.max(numColumns, 1);
+        return (int) Math.max(Math.min(headerBallots, mostLines), 0);
+    }
+
+    /**
+     * Retrieves the election type from the header.
+     *
+     * @return 0 for Plurality, 1 for STV, 2 for MV.
+     */
+    public int getElectionType() {
+        return electionType;
+    }
+
+    /**
+     * Retrieves the number of seats from the header.
+     *
+     * @return The number of seats.
+     */
+    public int getNumSeats() {
+        return numSeats;
+    }
+
+    /**
+     * Retrieves the number of candidates from the header.
+     *
+     * @return The number of candidates.
+     */
+    public int getNumCandidates() {
+        return numCandidates;
+    }
+
+    /**
+     * Retrieves the total number of ballots given in the file headers.
+     *
+     * @return The number of ballots.
+     */
+    public int getNumBallots() {
+        return numBallots;
+    }
+
+    /**
+     * Retrieves the candidates named in the header of the first file.
+     *
+     * @return The list of candidates.
+     */
+    public ArrayList<Candidate> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Retrieves the ballots of every file.
+     *
+     * @return A BallotStore holding every ballot, numbered in file order.
+     */
+    public BallotStore getBallots() {
+        return ballots;
+    }
+
+    /**
+     * Retrieves the candidate line from the header of the first file.
+     *
+     * @return The candidate line, or null if no file has been read.
+     */
+    public String getCandidateLine() {
+        return candidateLine;
+    }
+
+    /**
+     * Checks if the ballots of the last load were read from the cache.
+     *
+     * @return true if the cache was used, false if the files were parsed.
+     */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    /**
+     * Retrieves a description of why loading failed.
+     *
+     * @return The error message, or null if loading has not failed.
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,222 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the ballot lines of an election file through a memory-mapped FileChannel.
+ * The rankings on each line are tokenized straight from the mapped bytes into
+ * primitive ints, so no line Strings or boxed Integers are created while reading.
+ * Files larger than a single mapping are walked one region at a time.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class BallotReader implements Closeable {
+
+    /** Number of header lines at the top of every election file. */
+    public static final int HEADER_LINES = 5;
+
+    /** Largest part of the file that is mapped at one time. */
+    private static final long REGION_SIZE = 1L << 26;
+
+    /** Channel of the election file being read. */
+    private final FileChannel channel;
+
+    /** Total size of the election file in bytes. */
+    private final long fileSize;
+
+    /** File offset of the region that is currently mapped. */
+    private long regionStart;
+
+    /** The currently mapped region of the file. */
+    private MappedByteBuffer region;
+
+    /**
+     * Opens an election file for reading.
+     *
+     * @param filename Path of the election file.
+     * @throws IOException If the file can not be opened or mapped.
+     */
+    public BallotReader(String filename) throws IOException {
+        channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+        fileSize = channel.size();
+        regionStart = 0;
+        mapRegion();
+    }
+
+    /**
+     * Skips over the given number of lines, such as the election file header.
+     *
+     * @param numLines The number of lines to skip.
+     * @throws IOException If the next region of the file can not be mapped.
+     */
+    public void skipLines(int numLines) throws IOException {
+        int skipped = 0;
+        while (skipped < numLines) {
+            int next = nextByte();
+            if (next == -1) {
+                return;
+            }
+            if (next == '\n') {
+                skipped++;
+            }
+        }
+    }
+
+    /**
+     * Reads the next line of the file as text, such as a line of the election file header.
+     * The line terminator and surrounding whitespace are not included.
+     *
+     * @return The line, or null at the end of the file.
+     * @throws IOException If the next region of the file can not be mapped.
+     */
+    public String readLine() throws IOException {
+        byte[] line = new byte[64];
+        int length = 0;
+        int next = nextByte();
+        if (next == -1) {
+            return null;
+        }
+        while (next != -1 && next != '\n') {
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length] = (byte) next;
+            length++;
+            next = nextByte();
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Reads the next ballot line into the given rank array. The i-th field on the line is
+     * stored at index i, with 0 for a field that was left empty. Fields past the end of the
+     * array are ignored and missing fields are treated as empty. Blank lines are skipped.
+     *
+     * @param ranks Array with one slot per candidate that receives the rankings.
+     * @return true if a ballot was read, false once the end of the file is reached.
+     * @throws IOException If the next region of the file can not be mapped.
+     * @throws NumberFormatException If a field contains something other than a whole number,
+     *         such as a sign with no digits, or a number too large for an int.
+     */
+    public boolean readBallot(int[] ranks) throws IOException {
+        int field = 0;
+        long value = 0;
+        int digits = 0;
+        boolean negative = false;
+        boolean lineStarted = false;
+
+        while (true) {
+            int next = nextByte();
+
+            // End of the line or the file finishes the last field on the line
+            if (next == '\n' || next == -1) {
+                if (lineStarted) {
+                    break;
+                }
+                if (next == -1) {
+                    return false;
+                }
+                continue;
+            }
+
+            // Whitespace and carriage returns are ignored just like String.trim() would
+            if (next <= ' ') {
+                continue;
+            }
+
+            lineStarted = true;
+            if (next == ',') {
+                int rank = fieldValue(value, negative, digits);
+                if (field < ranks.length) {
+                    ranks[field] = rank;
+                }
+                field++;
+                value = 0;
+                digits = 0;
+                negative = false;
+            }
+            else if (next >= '0' && next <= '9') {
+                // Integer.MIN_VALUE has one more unit of magnitude than Integer.MAX_VALUE
+                long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+                if (value > (limit - (next - '0')) / 10) {
+                    throw new NumberFormatException("Ranking on ballot line is too large for an int");
+                }
+                value = value * 10 + (next - '0');
+                digits++;
+            }
+            else if (next == '-' && !negative && digits == 0) {
+                negative = true;
+            }
+            else {
+                throw new NumberFormatException("Invalid ranking character '" + (char) next + "' on ballot line");
+            }
+        }
+
+        int rank = fieldValue(value, negative, digits);
+        if (field < ranks.length) {
+            ranks[field] = rank;
+        }
+        // A line with fewer fields than candidates leaves the rest unranked
+        for (int i = field + 1; i < ranks.length; i++) {
+            ranks[i] = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Finishes a field of a ballot line.
+     *
+     * @param value The magnitude of the field's number.
+     * @param negative Whether the field started with a minus sign.
+     * @param digits The number of digits in the field.
+     * @return The ranking, or 0 for an empty field.
+     * @throws NumberFormatException If the field is a minus sign with no digits.
+     */
+    private static int fieldValue(long value, boolean negative, int digits) {
+        if (negative && digits == 0) {
+            throw new NumberFormatException("Ranking on ballot line is a sign with no digits");
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Returns the next byte of the file, mapping the following region when the current one runs out.
+     *
+     * @return The next byte as an unsigned value, or -1 at the end of the file.
+     * @throws IOException If the next region of the file can not be mapped.
+     */
+    private int nextByte() throws IOException {
+        if (!region.hasRemaining()) {
+            regionStart += region.limit();
+            if (regionStart >= fileSize) {
+                return -1;
+            }
+            mapRegion();
+        }
+        return region.get() & 0xFF;
+    }
+
+    /**
+     * Maps the region of the file that starts at regionStart.
+     *
+     * @throws IOException If the region can not be mapped.
+     */
+    private void mapRegion() throws IOException {
+        long size = Math.min(REGION_SIZE, fileSize - regionStart);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, size);
+    }
+
+    /**
+     * Closes the underlying file channel.
+     *
+     * @throws IOException If the channel can not be closed.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+}
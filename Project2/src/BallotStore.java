@@ -0,0 +1,395 @@
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Columnar storage for every ballot of an election. Ballot IDs, rankings and the
+ * candidate that currently holds each ballot are kept in flat primitive arrays,
+ * with one row per ballot, so the tabulation loops are sequential array scans.
+ * Rankings are kept row by row in one packed matrix with a column per candidate.
+ *
+ * @author Zach Larsen
+ */
+public class BallotStore {
+
+    /** Largest array length the JVM reliably allocates. */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /** Candidates in column order. Column i of the rank matrix belongs to columns[i]. */
+    private final Candidate[] columns;
+
+    /** Number of ballots in the store. */
+    private int size;
+
+    /** ID of the ballot in each row. */
+    private int[] ballotIDs;
+
+    /** Rank matrix, row-major with columns.length ranks per ballot. 0 where unranked. */
+    private short[] ranks;
+
+    /** Column of the candidate holding each ballot, or -1 when no candidate holds it. */
+    private int[] owners;
+
+    /** Rank-ordered index, row-major with columns.length entries per ballot. Entry rank - 1 of a
+     * row is the column given that rank, or -1 if no candidate was. Built the first time it is used. */
+    private short[] rankIndex;
+
+    /**
+     * Constructs an empty BallotStore.
+     *
+     * @param columns The candidates of the election in file column order.
+     * @param capacity The number of ballots expected, used to size the arrays. The arrays
+     *                 grow as ballots are added, so this is only a hint, and it is lowered
+     *                 to the most rows the rank matrix can hold.
+     */
+    public BallotStore(Candidate[] columns, int capacity) {
+        this.columns = columns;
+        int rows = Math.max(Math.min(capacity, maxRows()), 1);
+        ballotIDs = new int[rows];
+        ranks = new short[rows * columns.length];
+        owners = new int[rows];
+        size = 0;
+    }
+
+    /**
+     * Builds a store holding the same ballots as a list of Ballot objects, in list order.
+     *
+     * @param ballots The ballots to store.
+     * @param candidates The candidates of the election, which become the columns.
+     * @return A BallotStore with one row per ballot.
+     */
+    public static BallotStore fromBallots(ArrayList<Ballot> ballots, ArrayList<Candidate> candidates) {
+        BallotStore store = new BallotStore(candidates.toArray(new Candidate[0]), ballots.size());
+        int numColumns = store.columns.length;
+        for (Ballot ballot : ballots) {
+            store.ensureCapacity(store.size + 1);
+            ballot.copyRanks(store.columns, store.ranks, store.size * numColumns);
+            store.ballotIDs[store.size] = ballot.getBallotID();
+            store.owners[store.size] = -1;
+            store.size++;
+        }
+        return store;
+    }
+
+    /**
+     * Builds a store around arrays that already hold its ballots, such as arrays read from a
+     * ballot cache. The arrays are used as they are, not copied.
+     *
+     * @param columns The candidates of the election in file column order.
+     * @param ballotIDs The ID of the ballot in each row.
+     * @param ranks The rank matrix, row-major with columns.length ranks per ballot.
+     * @param size The number of ballots in the arrays.
+     * @return A BallotStore with size rows, none of them held by a candidate.
+     */
+    public static BallotStore fromArrays(Candidate[] columns, int[] ballotIDs, short[] ranks, int size) {
+        BallotStore store = new BallotStore(columns, 0);
+        store.ballotIDs = ballotIDs;
+        store.ranks = ranks;
+        store.owners = new int[Math.max(size, 1)];
+        Arrays.fill(store.owners, -1);
+        store.size = size;
+        return store;
+    }
+
+    /**
+     * Adds a ballot to the end of the store.
+     *
+     * @param ballotID The unique identifier for the ballot.
+     * @param ballotRanks The rank given to each candidate column, 0 if unranked.
+     * @throws NumberFormatException If a rank is too large to be stored.
+     */
+    public void addBallot(int ballotID, int[] ballotRanks) {
+        ensureCapacity(size + 1);
+        int offset = size * columns.length;
+        for (int i = 0; i < columns.length; i++) {
+            int rank = ballotRanks[i];
+            if (rank < Short.MIN_VALUE || rank > Short.MAX_VALUE) {
+                throw new NumberFormatException("Ranking out of range on ballot " + ballotID);
+            }
+            ranks[offset + i] = (short) rank;
+        }
+        ballotIDs[size] = ballotID;
+        owners[size] = -1;
+        size++;
+        rankIndex = null;
+    }
+
+    /**
+     * Adds every ballot of another store with the same columns to the end of this store.
+     * The ballot IDs of the other store are shifted by idOffset as they are copied.
+     *
+     * @param other The store whose ballots are added.
+     * @param idOffset The amount added to each copied ballot ID.
+     */
+    public void addAll(BallotStore other, int idOffset) {
+        int numColumns = columns.length;
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.ranks, 0, ranks, size * numColumns, other.size * numColumns);
+        for (int row = 0; row < other.size; row++) {
+            ballotIDs[size + row] = other.ballotIDs[row] + idOffset;
+            owners[size + row] = -1;
+        }
+        size += other.size;
+        rankIndex = null;
+    }
+
+    /**
+     * Copies the ballot IDs of a range of rows into a buffer, such as a ballot cache being written.
+     *
+     * @param start The first row to copy.
+     * @param numRows The number of rows to copy.
+     * @param out The buffer that receives the IDs.
+     */
+    public void copyBallotIDs(int start, int numRows, IntBuffer out) {
+        out.put(ballotIDs, start, numRows);
+    }
+
+    /**
+     * Copies the rankings of a range of rows into a buffer, row by row with a rank per column.
+     *
+     * @param start The first row to copy.
+     * @param numRows The number of rows to copy.
+     * @param out The buffer that receives the ranks.
+     */
+    public void copyRanks(int start, int numRows, ShortBuffer out) {
+        out.put(ranks, start * columns.length, numRows * columns.length);
+    }
+
+    /**
+     * Grows the arrays so that they hold at least the given number of rows.
+     *
+     * @param rows The number of rows needed.
+     */
+    private void ensureCapacity(int rows) {
+        if (rows <= ballotIDs.length) {
+            return;
+        }
+        if (rows < 0 || rows > maxRows()) {
+            throw new IllegalArgumentException("A ballot store can hold at most " + maxRows() + " ballots of "
+                    + columns.length + " candidates.");
+        }
+        int newRows = (int) Math.min(Math.max(rows, ballotIDs.length * 2L), maxRows());
+        ballotIDs = Arrays.copyOf(ballotIDs, newRows);
+        ranks = Arrays.copyOf(ranks, newRows * columns.length);
+        owners = Arrays.copyOf(owners, newRows);
+    }
+
+    /**
+     * Retrieves the most rows the store can hold, which is when the rank matrix, with a rank
+     * per column for every row, reaches the largest array length.
+     *
+     * @return The largest number of rows.
+     */
+    private int maxRows() {
+        return MAX_ARRAY_LENGTH / Math.max(columns.length, 1);
+    }
+
+    /**
+     * Retrieves the number of ballots in the store.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of candidate columns.
+     *
+     * @return The number of candidates.
+     */
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    /**
+     * Retrieves the candidate of a column.
+     *
+     * @param column The column of the candidate.
+     * @return The candidate.
+     */
+    public Candidate getCandidate(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Finds the column of a candidate.
+     *
+     * @param candidate The candidate to look for.
+     * @return The column of the candidate, or -1 if they are not part of the store.
+     */
+    public int getColumn(Candidate candidate) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == candidate) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the ID of the ballot in a row.
+     *
+     * @param row The row of the ballot.
+     * @return The ballot ID.
+     */
+    public int getBallotID(int row) {
+        return ballotIDs[row];
+    }
+
+    /**
+     * Retrieves the rank a ballot gave a candidate.
+     *
+     * @param row The row of the ballot.
+     * @param column The column of the candidate.
+     * @return The rank, or 0 if the candidate was not ranked.
+     */
+    public int getRank(int row, int column) {
+        return ranks[row * columns.length + column];
+    }
+
+    /**
+     * Hashes the rankings of a ballot, so rows with identical rankings hash the same.
+     *
+     * @param row The row of the ballot.
+     * @return The hash of the row's rankings.
+     */
+    public int hashRanks(int row) {
+        int offset = row * columns.length;
+        int hash = 1;
+        for (int i = 0; i < columns.length; i++) {
+            hash = 31 * hash + ranks[offset + i];
+        }
+        return hash;
+    }
+
+    /**
+     * Checks if two ballots gave every candidate the same rank.
+     *
+     * @param row The row of the first ballot.
+     * @param other The row of the second ballot.
+     * @return true if the rankings are identical, false otherwise.
+     */
+    public boolean sameRanks(int row, int other) {
+        return Arrays.equals(ranks, row * columns.length, (row + 1) * columns.length,
+                ranks, other * columns.length, (other + 1) * columns.length);
+    }
+
+    /**
+     * Finds the first candidate column a ballot gave the specified rank.
+     *
+     * @param row The row of the ballot.
+     * @param rank The rank to look for.
+     * @return The column, or -1 if no candidate was given that rank.
+     */
+    public int findRank(int row, int rank) {
+        int offset = row * columns.length;
+        for (int i = 0; i < columns.length; i++) {
+            if (ranks[offset + i] == rank) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the candidate column a ballot gave the specified rank using the rank-ordered index,
+     * so stepping from one rank to the next costs one array read instead of a scan of the row.
+     * Matches findRank, returning the first column when a rank was given more than once.
+     *
+     * @param row The row of the ballot.
+     * @param rank The rank to look for.
+     * @return The column, or -1 if no candidate was given that rank.
+     */
+    public int getRankColumn(int row, int rank) {
+        if (rank < 1 || rank > columns.length) {
+            return -1;
+        }
+        if (rankIndex == null) {
+            buildRankIndex();
+        }
+        return rankIndex[row * columns.length + rank - 1];
+    }
+
+    /**
+     * Builds the rank-ordered index of every row from the rank matrix.
+     */
+    private void buildRankIndex() {
+        int numColumns = columns.length;
+        rankIndex = new short[size * numColumns];
+        Arrays.fill(rankIndex, (short) -1);
+        for (int row = 0; row < size; row++) {
+            int offset = row * numColumns;
+            // walk the columns backwards so the first column wins a repeated rank
+            for (int column = numColumns - 1; column >= 0; column--) {
+                int rank = ranks[offset + column];
+                if (rank >= 1 && rank <= numColumns) {
+                    rankIndex[offset + rank - 1] = (short) column;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the column of the candidate currently holding a ballot.
+     *
+     * @param row The row of the ballot.
+     * @return The column of the candidate, or -1 if no candidate holds the ballot.
+     */
+    public int getOwner(int row) {
+        return owners[row];
+    }
+
+    /**
+     * Records which candidate currently holds a ballot.
+     *
+     * @param row The row of the ballot.
+     * @param column The column of the candidate, or -1 if no candidate holds the ballot.
+     */
+    public void setOwner(int row, int column) {
+        owners[row] = column;
+    }
+
+    /**
+     * Shuffles the rows of the store randomly, moving every column of a row together.
+     *
+     * @param rand The random number generator to shuffle with.
+     */
+    public void shuffle(Random rand) {
+        int max = size - 1;
+        for (int i = 0; i < max; i++) {
+            int randomInt = rand.nextInt(max - i + 1) + i;
+            swapRows(i, randomInt);
+        }
+        rankIndex = null;
+    }
+
+    /**
+     * Swaps two rows of the store.
+     *
+     * @param row1 The first row.
+     * @param row2 The second row.
+     */
+    private void swapRows(int row1, int row2) {
+        if (row1 == row2) {
+            return;
+        }
+        int tempID = ballotIDs[row1];
+        ballotIDs[row1] = ballotIDs[row2];
+        ballotIDs[row2] = tempID;
+
+        int tempOwner = owners[row1];
+        owners[row1] = owners[row2];
+        owners[row2] = tempOwner;
+
+        int offset1 = row1 * columns.length;
+        int offset2 = row2 * columns.length;
+        for (int i = 0; i < columns.length; i++) {
+            short tempRank = ranks[offset1 + i];
+            ranks[offset1 + i] = ranks[offset2 + i];
+            ranks[offset2 + i] = tempRank;
+        }
+    }
+}
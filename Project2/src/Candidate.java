@@ -1,8 +1,6 @@
-import java.util.ArrayList;
-
 /**
  * Represents a candidate in an election, tracking their name, status,
- * assigned ballots, and vote count.
+ * the IDs of their assigned ballots, and vote count.
  *
  * @author Baanee Singh
  */
@@ -16,9 +14,11 @@ public class Candidate {
    * if they've been removed from the election. */
   private String status;
 
-  /** List of all the ballots that have
-   * been awarded to a candidate. */
-  private ArrayList<Ballot> ballots;
+  /** IDs of all the ballots that have been awarded to
+   * a candidate, in the order they were awarded. Only the
+   * IDs are kept, so the candidate never holds on to the
+   * ballots themselves once they have been counted. */
+  private IntList ballotIDs;
 
   /** Number of votes the candidate has been awarded*/
   private int voteCount;
@@ -33,7 +33,7 @@ public class Candidate {
   public Candidate(String name){
     this.name = name;
     this.status = "active";
-    this.ballots = new ArrayList<>();
+    this.ballotIDs = new IntList();
     this.voteCount = 0;
   }
 
@@ -74,21 +74,48 @@ public class Candidate {
   }
 
   /**
-   * Retrieves the list of ballots assigned to the candidate.
+   * Checks if the candidate is still active in the election.
+   *
+   * @return true if the candidate is active, false otherwise.
+   */
+  public boolean isActive() {
+    return status.equals("active");
+  }
+
+  /**
+   * Retrieves the IDs of the ballots assigned to the candidate.
    *
-   * @return An ArrayList of Ballot objects.
+   * @return An IntList of ballot IDs in the order they were assigned.
    */
-  public ArrayList<Ballot> getBallots() {
-    return ballots;
+  public IntList getBallotIDs() {
+    return ballotIDs;
   }
 
   /**
-   * Adds a new ballot to the candidate's list of ballots.
+   * Adds a new ballot to the candidate's ballots, recording only its ID.
    *
    * @param newBallot The ballot to be added.
    */
   public void addBallot(Ballot newBallot) {
-    this.ballots.add(newBallot);
+    this.ballotIDs.add(newBallot.getBallotID());
+  }
+
+  /**
+   * Adds the ID of a new ballot to the candidate's ballots.
+   *
+   * @param ballotID The ID of the ballot to be added.
+   */
+  public void addBallotID(int ballotID) {
+    this.ballotIDs.add(ballotID);
+  }
+
+  /**
+   * Adds the IDs of several new ballots to the candidate's ballots, in order.
+   *
+   * @param newBallotIDs The IDs of the ballots to be added.
+   */
+  public void addBallotIDs(IntList newBallotIDs) {
+    this.ballotIDs.addAll(newBallotIDs);
   }
 
   /**
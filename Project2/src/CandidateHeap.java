@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Indexed binary min-heap of the active candidates of an election, keyed on vote count.
+ * The candidates with the fewest votes, and every candidate tied with them, can be found
+ * without scanning the whole candidate list. The heap holds the vote counts it was last
+ * given, so callers update a candidate after its count or status changes.
+ *
+ * @author Amelia Lunning
+ */
+public class CandidateHeap {
+
+    /** Candidates of the election, in their original order. */
+    private final ArrayList<Candidate> candidates;
+
+    /** Position of each candidate in the candidate list. */
+    private final IdentityHashMap<Candidate, Integer> indexes;
+
+    /** Candidate list indexes in heap order. */
+    private final int[] heap;
+
+    /** Heap position of each candidate list index, -1 if the candidate is not in the heap. */
+    private final int[] positions;
+
+    /** Vote count of each candidate as of its last update. */
+    private final long[] keys;
+
+    /** Number of candidates in the heap. */
+    private int size = 0;
+
+    /**
+     * Builds a heap of the candidates whose status is active.
+     *
+     * @param candidates The candidates of the election.
+     */
+    public CandidateHeap(ArrayList<Candidate> candidates) {
+        this.candidates = candidates;
+        int numCandidates = candidates.size();
+        indexes = new IdentityHashMap<>(numCandidates);
+        heap = new int[numCandidates];
+        positions = new int[numCandidates];
+        keys = new long[numCandidates];
+        Arrays.fill(positions, -1);
+
+        for (int index = 0; index < numCandidates; index++) {
+            Candidate candidate = candidates.get(index);
+            indexes.put(candidate, index);
+            if (candidate.isActive()) {
+                keys[index] = candidate.getVoteCount();
+                heap[size] = index;
+                positions[index] = size;
+                size++;
+            }
+        }
+        for (int position = size / 2 - 1; position >= 0; position--) {
+            siftDown(position);
+        }
+    }
+
+    /**
+     * Checks if there are no active candidates left in the heap.
+     *
+     * @return true if the heap is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Re-reads a candidate's vote count and status. A candidate that is no longer active is
+     * removed from the heap.
+     *
+     * @param candidate The candidate whose count or status changed.
+     */
+    public void update(Candidate candidate) {
+        update(candidate, candidate.getVoteCount());
+    }
+
+    /**
+     * Updates a candidate with a vote count kept outside the Candidate, such as a fractional
+     * tally in fixed point. A candidate that is no longer active is removed from the heap.
+     *
+     * @param candidate The candidate whose count or status changed.
+     * @param voteCount The candidate's current vote count.
+     */
+    public void update(Candidate candidate, long voteCount) {
+        Integer index = indexes.get(candidate);
+        if (index == null) {
+            return;
+        }
+        int position = positions[index];
+        if (!candidate.isActive()) {
+            if (position != -1) {
+                removeAt(position);
+            }
+            return;
+        }
+        keys[index] = voteCount;
+        if (position == -1) {
+            heap[size] = index;
+            positions[index] = size;
+            size++;
+            siftUp(size - 1);
+        }
+        else {
+            siftUp(position);
+            siftDown(positions[index]);
+        }
+    }
+
+    /**
+     * Retrieves every active candidate tied for the fewest votes, in candidate list order.
+     * Only the part of the heap holding the lowest vote count is visited.
+     *
+     * @return The candidates with the fewest votes, or an empty list if the heap is empty.
+     */
+    public ArrayList<Candidate> getLowest() {
+        ArrayList<Candidate> lowest = new ArrayList<>();
+        if (size == 0) {
+            return lowest;
+        }
+        long minVoteCount = keys[heap[0]];
+        IntList tied = new IntList();
+        IntList stack = new IntList();
+        stack.add(0);
+        // children are never below their parent, so a subtree is skipped once its root is above the minimum
+        for (int next = 0; next < stack.size(); next++) {
+            int position = stack.get(next);
+            if (position >= size || keys[heap[position]] != minVoteCount) {
+                continue;
+            }
+            tied.add(heap[position]);
+            stack.add(2 * position + 1);
+            stack.add(2 * position + 2);
+        }
+        int[] tiedIndexes = tied.toArray();
+        Arrays.sort(tiedIndexes);
+        for (int index : tiedIndexes) {
+            lowest.add(candidates.get(index));
+        }
+        return lowest;
+    }
+
+    /**
+     * Removes the candidate at a heap position.
+     *
+     * @param position The heap position.
+     */
+    private void removeAt(int position) {
+        int removed = heap[position];
+        positions[removed] = -1;
+        size--;
+        if (position == size) {
+            return;
+        }
+        heap[position] = heap[size];
+        positions[heap[position]] = position;
+        siftUp(position);
+        siftDown(positions[heap[position]]);
+    }
+
+    /**
+     * Moves the candidate at a heap position up until its parent is not larger.
+     *
+     * @param position The heap position.
+     */
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!less(heap[position], heap[parent])) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    /**
+     * Moves the candidate at a heap position down until neither child is smaller.
+     *
+     * @param position The heap position.
+     */
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && less(heap[left], heap[smallest])) {
+                smallest = left;
+            }
+            if (right < size && less(heap[right], heap[smallest])) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    /**
+     * Orders candidates by vote count, then by their place in the candidate list.
+     *
+     * @param a The list index of the first candidate.
+     * @param b The list index of the second candidate.
+     * @return true if the first candidate comes before the second.
+     */
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    /**
+     * Swaps two heap positions.
+     *
+     * @param a The first heap position.
+     * @param b The second heap position.
+     */
+    private void swap(int a, int b) {
+        int candidate = heap[a];
+        heap[a] = heap[b];
+        heap[b] = candidate;
+        positions[heap[a]] = a;
+        positions[heap[b]] = b;
+    }
+}
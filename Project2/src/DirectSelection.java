@@ -1,9 +1,9 @@
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 
 /**
@@ -25,12 +25,146 @@ abstract public class DirectSelection extends Election {
         DETERMINISTIC = true;
     }
 
+    /** Number of threads used to tabulate votes. 1 tabulates on the calling thread. */
+    protected int parallelism = 1;
+
+    /** Number of ballot rows counted by each parallel task. */
+    private int chunkSize = 1 << 16;
+
+    /**
+     * Set the number of threads used to tabulate votes. Elections with fewer
+     * ballots than one chunk are always tabulated on the calling thread.
+     * @param threads the number of threads, 1 or less to tabulate serially
+     */
+    public void setParallelism(int threads){
+        parallelism = Math.max(threads, 1);
+    }
+
+    /**
+     * Set the number of ballot rows counted by each parallel task.
+     * @param rows the number of rows per chunk, at least 1
+     * @throws IllegalArgumentException if rows is less than 1
+     */
+    public void setChunkSize(int rows){
+        if (rows < 1){
+            throw new IllegalArgumentException("The chunk size must be at least 1.");
+        }
+        chunkSize = rows;
+    }
+
     /**
      * Go through all cast ballots and increment a Candidates vote count by
      * one for every vote they receive in a ballot.
      */
     public abstract void tabulateVotes();
 
+    /**
+     * Count the votes on every ballot with the given counter, recording the tabulation
+     * as a flight recorder event.
+     * @param counter counts the votes on a range of rows
+     */
+    protected void tabulate(Tally.RowCounter counter){
+        ElectionEvents.Tabulate event = new ElectionEvents.Tabulate();
+        event.begin();
+        tabulateRows(counter);
+        if (event.shouldCommit()){
+            event.election = getElectionName();
+            event.ballots = getBallotStore().size();
+            event.candidates = getBallotStore().getNumColumns();
+            event.threads = countTasks(event.ballots);
+            event.commit();
+        }
+    }
+
+    /**
+     * Count the votes on every ballot in the store with the given counter. The rows are split
+     * into runs of whole chunks, one per thread, that are counted in parallel on the common
+     * fork/join pool into separate tallies. Each task also turns its rows into ballot IDs, and the
+     * candidates are then handed their tallies' IDs in row order, one candidate per task, so the
+     * vote counts and the order of each Candidate's ballots are exactly the same as counting every
+     * row on one thread. The tasks are measured into the worker usage of the running phase.
+     * @param counter counts the votes on a range of rows
+     */
+    protected void tabulateRows(Tally.RowCounter counter){
+        BallotStore store = getBallotStore();
+        PhaseMetrics.WorkerUsage usage = metrics.getWorkerUsage();
+        int numRows = store.size();
+        int numColumns = store.getNumColumns();
+        int numTasks = countTasks(numRows);
+
+        Tally[] tallies = new Tally[numTasks];
+        if (numTasks == 1){
+            tallies[0] = countRange(store, 0, numRows, counter);
+        }
+        else{
+            //Each task counts a run of whole chunks, so the tasks cover the rows in order
+            int numChunks = (numRows + chunkSize - 1) / chunkSize;
+            int rowsPerTask = (numChunks + numTasks - 1) / numTasks * chunkSize;
+            ArrayList<ForkJoinTask<Tally>> tasks = new ArrayList<>();
+            for (int task = 0; task < numTasks; task++){
+                int start = Math.min(task * rowsPerTask, numRows);
+                int end = Math.min(start + rowsPerTask, numRows);
+                tasks.add(ForkJoinPool.commonPool().submit(() -> usage.measure(() -> countRange(store, start, end, counter))));
+            }
+            for (int task = 0; task < numTasks; task++){
+                tallies[task] = tasks.get(task).join();
+            }
+        }
+
+        //Hand each candidate its IDs from every tally in row order
+        ArrayList<ForkJoinTask<?>> merges = new ArrayList<>();
+        for (int column = 0; column < numColumns; column++){
+            Candidate candidate = store.getCandidate(column);
+            int merged = column;
+            Runnable merge = () -> {
+                int votes = 0;
+                for (Tally tally : tallies){
+                    votes += tally.getCount(merged);
+                    candidate.addBallotIDs(tally.getRows(merged));
+                }
+                candidate.setVoteCount(candidate.getVoteCount() + votes);
+            };
+            if (numTasks == 1){
+                merge.run();
+            }
+            else{
+                merges.add(ForkJoinPool.commonPool().submit(() -> usage.measure(() -> {
+                    merge.run();
+                    return null;
+                })));
+            }
+        }
+        for (ForkJoinTask<?> merge : merges){
+            merge.join();
+        }
+    }
+
+    /**
+     * Get the number of tasks the rows are counted with, which is at most the parallelism
+     * and at most the number of chunks.
+     * @param numRows the number of ballot rows
+     * @return the number of tasks, 1 to count on the calling thread
+     */
+    protected int countTasks(int numRows){
+        int numChunks = (numRows + chunkSize - 1) / chunkSize;
+        return Math.max(1, Math.min(parallelism, numChunks));
+    }
+
+    /**
+     * Count the votes on a range of rows into a new tally and turn its rows into ballot IDs.
+     * @param store the store holding the ballots
+     * @param start the first row to count
+     * @param end the row after the last row to count
+     * @param counter counts the votes on a range of rows
+     * @return the tally, holding ballot IDs in place of rows
+     */
+    private static Tally countRange(BallotStore store, int start, int end, Tally.RowCounter counter){
+        Tally tally = new Tally(store.getNumColumns());
+        counter.countRows(store, start, end, tally);
+        tally.toBallotIDs(store);
+        return tally;
+    }
+
     /**
      * Go through all the candidates and put them in the winner or loser list depending
      * on how many votes they recieved and how many seats are avaialble. Settle ties by
@@ -113,108 +247,89 @@ abstract public class DirectSelection extends Election {
 
 
     /**
-     * Display important election stats including the number of ballots, number of seats, number of candidates,
+     * Format important election stats including the number of ballots, number of seats, number of candidates,
      * the winners and there vote percentage, and losers and there vote percentage.
      * @param electionName a String clarifying if it is a Plurality or Municipal Voting election.
+     * @return the results text
      */
-    public void displayResults(String electionName){
-        System.out.printf("Election Type: %s\n", electionName);
-        System.out.printf("Number of Ballots: %d\n", numBallots);
-        System.out.printf("Seats to be Filled: %d\n", numSeats);
-        System.out.printf("Number of Candidates: %d\n", numCandidates);
+    public String formatResults(String electionName){
+        StringBuilder results = new StringBuilder();
+        results.append(String.format("Election Type: %s\n", electionName));
+        results.append(String.format("Number of Ballots: %d\n", numBallots));
+        results.append(String.format("Seats to be Filled: %d\n", numSeats));
+        results.append(String.format("Number of Candidates: %d\n", numCandidates));
 
-        System.out.print("Winners:");
+        results.append("Winners:");
         for (int i=0; i < winners.size(); i++){
             double percentage = (winners.get(i).getVoteCount() / (double)numBallots) * 100;
             if(i == winners.size() - 1){
-                System.out.printf(" %s with a vote percentage of: %.1f%%\n", winners.get(i).getName(), percentage);
+                results.append(String.format(" %s with a vote percentage of: %.1f%%\n", winners.get(i).getName(), percentage));
             } else{
-                System.out.printf(" %s with a vote percentage of: %.1f%%,", winners.get(i).getName(), percentage);
+                results.append(String.format(" %s with a vote percentage of: %.1f%%,", winners.get(i).getName(), percentage));
             }
         }
 
         //If there are no losers skip this output
         if(!losers.isEmpty()) {
-            System.out.print("Losers:");
+            results.append("Losers:");
             for (int i = 0; i < losers.size(); i++) {
                 double percentage = (losers.get(i).getVoteCount() / (double) numBallots) * 100;
                 if (i == losers.size() - 1) {
-                    System.out.printf(" %s with a vote percentage of: %.1f%%\n", losers.get(i).getName(), percentage);
+                    results.append(String.format(" %s with a vote percentage of: %.1f%%\n", losers.get(i).getName(), percentage));
                 } else {
-                    System.out.printf(" %s with a vote percentage of: %.1f%%,", losers.get(i).getName(), percentage);
+                    results.append(String.format(" %s with a vote percentage of: %.1f%%,", losers.get(i).getName(), percentage));
                 }
             }
         }
+        return results.toString();
     }
 
     /**
-     * Generate an audit file after an election that contains all relevant election information.
+     * Write the audit of an election that contains all relevant election information.
+     * @param writer the writer of the audit
      * @param electionName A String indicating if it is a Plurality or Municipal Voting election.
-     * @return A file pointer to the newly created audit file
+     * @throws IOException if the audit can not be written
      */
-    public File generateAudit(String electionName){
-        File auditFile = new File(fileName);
-
-        try{
-            if(!auditFile.createNewFile()){
-                System.err.println("File already exists\n Choose a different name for the audit file.");
-                System.exit(-1);
+    public void writeAudit(AuditWriter writer, String electionName) throws IOException{
+        writer.write(String.format("Election Type: %s\n", electionName));
+        writer.write(String.format("Number of Ballots: %d\n", numBallots));
+        writer.write(String.format("Seats to be Filled: %d\n", numSeats));
+        writer.write(String.format("Number of Candidates: %d\n", numCandidates));
 
-            }
-        } catch (IOException error){
-            System.err.printf("An error occurred: %s\n", error);
-            System.exit(-1);
-        }
-
-        try{
-            FileWriter writer = new FileWriter(auditFile);
-            writer.write(String.format("Election Type: %s\n", electionName));
-            writer.write(String.format("Number of Ballots: %d\n", numBallots));
-            writer.write(String.format("Seats to be Filled: %d\n", numSeats));
-            writer.write(String.format("Number of Candidates: %d\n", numCandidates));
-
-            for (Candidate winner : winners) {
-                double percentage = (winner.getVoteCount() / (double) numBallots) * 100;
-                writer.write(String.format("Winner: %s with a vote percentage of %.1f%%\n", winner.getName(), percentage));
-
-                ArrayList<Ballot> ballots = winner.getBallots();
-                for(int i = 0; i < ballots.size(); i++){
-                    if(ballots.size() == 1){
-                        writer.write(String.format("Order of ballots cast for %s: %d\n", winner.getName(), ballots.getFirst().getBallotID()));
-                    } else if(i == 0){
-                        writer.write(String.format("Order of ballots cast for %s: %d, ", winner.getName(), ballots.getFirst().getBallotID()));
-                    } else if (i == ballots.size() - 1) {
-                        writer.write(String.format("%d\n", ballots.get(i).getBallotID()));
-                    } else{
-                        writer.write(String.format("%d, ", ballots.get(i).getBallotID()));
-                    }
-                }
-            }
+        for (Candidate winner : winners) {
+            double percentage = (winner.getVoteCount() / (double) numBallots) * 100;
+            writer.write(String.format("Winner: %s with a vote percentage of %.1f%%\n", winner.getName(), percentage));
+            writeBallotOrder(writer, winner);
+        }
 
-            for (Candidate loser : losers) {
-                double percentage = (loser.getVoteCount() / (double) numBallots) * 100;
-                writer.write(String.format("Loser: %s with a vote percentage of %.1f%%\n", loser.getName(), percentage));
-
-                ArrayList<Ballot> ballots = loser.getBallots();
-                for(int i = 0; i < ballots.size(); i++){
-                    if(ballots.size() == 1){
-                        writer.write(String.format("Order of ballots cast for %s: %d\n", loser.getName(), ballots.getFirst().getBallotID()));
-                    } else if(i == 0){
-                        writer.write(String.format("Order of ballots cast for %s: %d, ", loser.getName(), ballots.getFirst().getBallotID()));
-                    } else if (i == ballots.size() - 1) {
-                        writer.write(String.format("%d\n", ballots.get(i).getBallotID()));
-                    } else{
-                        writer.write(String.format("%d, ", ballots.get(i).getBallotID()));
-                    }
-                }
-            }
-            writer.close();
-        } catch(IOException error){
-            System.err.printf("An error occurred: %s\n", error);
-            System.exit(-1);
+        for (Candidate loser : losers) {
+            double percentage = (loser.getVoteCount() / (double) numBallots) * 100;
+            writer.write(String.format("Loser: %s with a vote percentage of %.1f%%\n", loser.getName(), percentage));
+            writeBallotOrder(writer, loser);
         }
+    }
 
-        return auditFile;
+    /**
+     * Write the order of the ballots cast for a candidate to the audit.
+     * @param writer the writer of the audit
+     * @param candidate the candidate whose ballots are listed
+     * @throws IOException if the audit can not be written
+     */
+    protected void writeBallotOrder(AuditWriter writer, Candidate candidate) throws IOException{
+        writer.writeBallotOrder(candidate.getName(), candidate.getBallotIDs());
+    }
+
+    /**
+     * Count the election by tabulating the votes and deciding the winners and losers,
+     * recording each step in the election's metrics.
+     */
+    public void countElection(){
+        metrics.start("tabulate");
+        tabulateVotes();
+        metrics.stop(numBallots);
+        metrics.start("determine");
+        determine_Winner_Loser();
+        metrics.stop(0);
     }
 
 }
@@ -1,7 +1,9 @@
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 
 /**
  * Provide an outline for methods that election types like STV and Plurality
@@ -32,22 +34,169 @@ abstract class Election{
     /** List of all ballots cast. */
     protected ArrayList<Ballot> ballots = new ArrayList<>();
 
+    /** Columnar copy of the ballots that the tabulation loops scan.
+     * Built from the ballots list the first time it is needed when not given. */
+    protected BallotStore ballotStore;
+
+    /** Ballots of the store grouped by identical rankings, or null until an STV
+     * count first needs them. */
+    protected BallotGroups ballotGroups;
+
+    /** Active candidates, one bit per candidate in list order, kept in step with
+     * the statuses set through setStatus once it is built. */
+    protected BitSet activeCandidates;
+
+    /** Bit of each candidate in the mask of active candidates. */
+    private HashMap<Candidate, Integer> candidateBits;
+
     /** Name of election input file. */
     protected String fileName;
 
-    /** Abstract method for displaying final
-     * election results. Realized in subclasses. */
-    public abstract void displayResults(String electionName);
+    /** Timings of each phase of the election, written next to the audit file. */
+    protected PhaseMetrics metrics = new PhaseMetrics();
+
+    /** Abstract method for formatting the final
+     * election results as they are displayed. Realized in subclasses.
+     * @return The results text
+     */
+    public abstract String formatResults(String electionName);
+
+    /** Abstract method for writing the body of the
+     * election audit. Realized in subclasses.
+     * @throws IOException If the audit can not be written
+     */
+    public abstract void writeAudit(AuditWriter writer, String electionName) throws IOException;
+
+    /** Abstract method for counting the election, filling the
+     * winners and losers without displaying or writing anything. Realized in subclasses. */
+    public abstract void countElection();
+
+    /** Abstract method for the name of the election type,
+     * as shown in the results and audit. Realized in subclasses.
+     * @return The election name
+     */
+    public abstract String getElectionName();
+
+    /**
+     * Display the final election results.
+     * @param electionName the name of the election type
+     */
+    public void displayResults(String electionName){
+        System.out.print(formatResults(electionName));
+    }
 
-    /** Abstract method for generating
-     * election audit file. Realized in subclasses.
+    /**
+     * Generate the audit file after an election. If the file already exists or can not
+     * be written, an error message is printed and null is returned.
+     * @param electionName the name of the election type
+     * @return A file pointer to the newly created audit file, or null if it was not written
+     */
+    public File generateAudit(String electionName){
+        try{
+            return writeAuditFile(electionName);
+        } catch (FileAlreadyExistsException error){
+            System.err.println("File already exists\n Choose a different name for the audit file.");
+        } catch (IOException error){
+            System.err.printf("An error occurred: %s\n", error);
+        }
+        return null;
+    }
+
+    /**
+     * Write the audit to a new file named by the election's audit filename.
+     * @param electionName the name of the election type
      * @return A file pointer to the newly created audit file
+     * @throws FileAlreadyExistsException If the audit file already exists
+     * @throws IOException If the audit file can not be written
+     */
+    public File writeAuditFile(String electionName) throws IOException{
+        File auditFile = new File(fileName);
+        if (!auditFile.createNewFile()){
+            throw new FileAlreadyExistsException(fileName);
+        }
+        try (AuditWriter writer = new AuditWriter(auditFile)){
+            writeAuditTo(writer, electionName, fileName);
+        }
+        return auditFile;
+    }
+
+    /**
+     * Write the audit through a writer, recording the time it takes in the election's
+     * metrics and as a flight recorder event.
+     * @param writer the writer that receives the audit
+     * @param electionName the name of the election type
+     * @param target the audit filename, or null when the audit is kept in memory
+     * @throws IOException If the audit can not be written
+     */
+    public void writeAuditTo(AuditWriter writer, String electionName, String target) throws IOException{
+        ElectionEvents.Audit event = new ElectionEvents.Audit();
+        event.begin();
+        metrics.start("audit");
+        writeAudit(writer, electionName);
+        writer.flush();
+        metrics.stop(numBallots);
+        if (event.shouldCommit()){
+            event.election = electionName;
+            event.filename = target == null ? "" : target;
+            event.ballots = numBallots;
+            event.commit();
+        }
+    }
+
+    /**
+     * Write the phase metrics next to the audit file, named by the audit filename
+     * with .txt replaced by .metrics.csv. An older metrics file is replaced.
+     * @return A file pointer to the metrics file
+     * @throws IOException If the metrics file can not be written
+     */
+    public File writeMetricsFile() throws IOException{
+        File metricsFile = new File(PhaseMetrics.metricsFileFor(fileName));
+        metrics.write(metricsFile.getPath(), getElectionName());
+        return metricsFile;
+    }
+
+    /**
+     * Run the election from start to finish: count it, display the results and
+     * generate the audit file.
+     */
+    public void startElection(){
+        countElection();
+        displayResults(getElectionName());
+        generateAudit(getElectionName());
+    }
+
+    /**
+     * Set the metrics that the election's phases are recorded in, such as ones
+     * that already hold the time taken to load the ballots
+     * @param metrics PhaseMetrics of this election run
+     */
+    public void setMetrics(PhaseMetrics metrics){
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the wall time, CPU time and allocations of each phase run so far
+     * @return PhaseMetrics of this election run
      */
-    public abstract File generateAudit(String electionName);
+    public PhaseMetrics getMetrics(){
+        return metrics;
+    }
 
-    /** Abstract method for driving the
-     * election program. Realized in subclasses. */
-    public abstract void startElection();
+    /**
+     * Get the number of ballots cast in the election
+     * @return int numBallots
+     */
+    public int getNumBallots(){
+        return numBallots;
+    }
+
+    /**
+     * Get the number of candidates in the election
+     * @return int numCandidates
+     */
+    public int getNumCandidates(){
+        return numCandidates;
+    }
 
     /**
      * Get the number of seats open for an election
@@ -129,5 +278,62 @@ abstract class Election{
         ballots.add(ballot);
     }
 
+    /**
+     * Get the columnar store of ballots cast in an election. If the election was
+     * given a list of ballots, the store is built from that list on the first call.
+     * @return BallotStore of all ballots
+     */
+    public BallotStore getBallotStore(){
+        if (ballotStore == null){
+            ballotStore = BallotStore.fromBallots(ballots, candidates);
+        }
+        return ballotStore;
+    }
+
+    /**
+     * Get the ballots of the store grouped by identical rankings. The groups are
+     * built from the ballot store on the first call.
+     * @return BallotGroups of all ballots
+     */
+    public BallotGroups getBallotGroups(){
+        if (ballotGroups == null){
+            ballotGroups = BallotGroups.fromStore(getBallotStore());
+        }
+        return ballotGroups;
+    }
 
-}
\ No newline at end of file
+    /**
+     * Get the mask of active candidates, with one bit per candidate in list order.
+     * The ballot store's columns follow the same order, so a column can be tested
+     * directly. The mask is built from the candidates' statuses on the first call and
+     * belongs to this election; candidates themselves never refer to it.
+     * @return BitSet with the bits of active candidates set
+     */
+    public BitSet getActiveCandidates(){
+        if (activeCandidates == null){
+            activeCandidates = new BitSet(candidates.size());
+            candidateBits = new HashMap<>();
+            for (int i = 0; i < candidates.size(); i++){
+                candidateBits.put(candidates.get(i), i);
+                activeCandidates.set(i, candidates.get(i).isActive());
+            }
+        }
+        return activeCandidates;
+    }
+
+    /**
+     * Set a candidate's status, and update their bit in the mask of active candidates
+     * if the mask has been built.
+     * @param candidate the candidate whose status changes
+     * @param status the new status, "active" or "eliminated"
+     */
+    protected void setStatus(Candidate candidate, String status){
+        candidate.setStatus(status);
+        if (activeCandidates != null){
+            Integer bit = candidateBits.get(candidate);
+            if (bit != null){
+                activeCandidates.set(bit, candidate.isActive());
+            }
+        }
+    }
+}
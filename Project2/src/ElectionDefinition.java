@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+
+/**
+ * Describes one election for the TabulationService: the election files that hold its ballots,
+ * where its audit goes and how an STV election is counted. The election type, seats and
+ * candidates come from the headers of the election files, just as when Main is run.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class ElectionDefinition {
+
+    /** Filenames of the election files, in the order their ballots are numbered. */
+    private final ArrayList<String> filenames;
+
+    /** Filename of the audit file, or null to keep the audit in memory. */
+    private String auditFilename;
+
+    /** Whether the ballots of a standard STV election are shuffled before counting. */
+    private boolean shuffle = true;
+
+    /** Whether STV surpluses are transferred at fractional weights (WIGM). */
+    private boolean fractionalSurplus = false;
+
+    /** Whether STV is counted with Meek's method. */
+    private boolean meek = false;
+
+    /** Filename of the binary ballot cache, or null when the files are always parsed. */
+    private String cacheFile;
+
+    /** Whether a Plurality or MV election is counted while its files are parsed. */
+    private boolean streaming = false;
+
+    /** Number of threads used to tabulate a Plurality or MV election. */
+    private int parallelism = 1;
+
+    /**
+     * Constructs a definition for the election held in the given files.
+     *
+     * @param filenames The election filenames, in the order their ballots are numbered.
+     */
+    public ElectionDefinition(ArrayList<String> filenames) {
+        this.filenames = new ArrayList<>(filenames);
+    }
+
+    /**
+     * Retrieves the election filenames.
+     *
+     * @return The election filenames, in order.
+     */
+    public ArrayList<String> getFilenames() {
+        return filenames;
+    }
+
+    /**
+     * Writes the audit to a new file instead of keeping it in memory. The file must not exist yet.
+     *
+     * @param auditFilename The filename of the audit file.
+     */
+    public void setAuditFilename(String auditFilename) {
+        this.auditFilename = auditFilename;
+    }
+
+    /**
+     * Retrieves the filename of the audit file.
+     *
+     * @return The filename, or null if the audit is kept in memory.
+     */
+    public String getAuditFilename() {
+        return auditFilename;
+    }
+
+    /**
+     * Toggles shuffling the ballots of a standard STV election before counting. On by default.
+     *
+     * @param shuffle true to shuffle the ballots, false to count them in file order.
+     */
+    public void setShuffle(boolean shuffle) {
+        this.shuffle = shuffle;
+    }
+
+    /**
+     * Checks if the ballots of a standard STV election are shuffled.
+     *
+     * @return true if the ballots are shuffled.
+     */
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    /**
+     * Toggles transferring STV surpluses at fractional weights (WIGM).
+     *
+     * @param fractionalSurplus true to transfer surpluses fractionally.
+     */
+    public void setFractionalSurplus(boolean fractionalSurplus) {
+        this.fractionalSurplus = fractionalSurplus;
+    }
+
+    /**
+     * Checks if STV surpluses are transferred at fractional weights.
+     *
+     * @return true if surpluses are transferred fractionally.
+     */
+    public boolean isFractionalSurplus() {
+        return fractionalSurplus;
+    }
+
+    /**
+     * Toggles counting an STV election with Meek's method.
+     *
+     * @param meek true to count with Meek's method.
+     */
+    public void setMeek(boolean meek) {
+        this.meek = meek;
+    }
+
+    /**
+     * Checks if an STV election is counted with Meek's method.
+     *
+     * @return true if Meek's method is used.
+     */
+    public boolean isMeek() {
+        return meek;
+    }
+
+    /**
+     * Keeps a binary cache of the parsed ballots in the given file.
+     *
+     * @param cacheFile The filename of the cache, or null to always parse the files.
+     */
+    public void setCacheFile(String cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Retrieves the filename of the binary ballot cache.
+     *
+     * @return The filename, or null if the files are always parsed.
+     */
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Toggles counting a Plurality or MV election while its files are parsed, so its ballots
+     * are never held in memory. Ignored for other election types.
+     *
+     * @param streaming true to count the ballots as they are parsed.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Checks if a Plurality or MV election is counted while its files are parsed.
+     *
+     * @return true if the ballots are streamed.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Sets the number of threads used to tabulate a Plurality or MV election.
+     *
+     * @param threads The number of threads, 1 or less to tabulate serially.
+     */
+    public void setParallelism(int threads) {
+        parallelism = Math.max(threads, 1);
+    }
+
+    /**
+     * Retrieves the number of threads used to tabulate a Plurality or MV election.
+     *
+     * @return The number of threads.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for the slow parts of an election: parsing each election file,
+ * tabulating a Plurality or MV election, each round of an STV count and writing the audit.
+ * A recording of a slow run then shows which file or round took the time, next to the
+ * profiler's stack samples. When no recording is running the events are disabled and cost
+ * next to nothing, so they are always emitted. Record a run with, for example,
+ * java -XX:StartFlightRecording=filename=election.jfr Main
+ *
+ * @author Zach Larsen
+ */
+public final class ElectionEvents {
+
+    /**
+     * Parsing one election file into ballots.
+     */
+    @Name("election.Parse")
+    @Label("Election File Parse")
+    @Category("Election")
+    @Description("Reading and validating the ballots of one election file")
+    public static class Parse extends Event {
+
+        /** The election file. */
+        @Label("File")
+        public String filename;
+
+        /** Size of the file. */
+        @Label("File Size")
+        @DataAmount
+        public long bytes;
+
+        /** Number of ballots read from the file. */
+        @Label("Ballots")
+        public int ballots;
+    }
+
+    /**
+     * Tabulating the votes of a Plurality or MV election.
+     */
+    @Name("election.Tabulate")
+    @Label("Direct Selection Tabulation")
+    @Category("Election")
+    @Description("Counting the votes of a Plurality or MV election")
+    public static class Tabulate extends Event {
+
+        /** The election type, such as "Plurality". */
+        @Label("Election")
+        public String election;
+
+        /** Number of ballots tabulated. */
+        @Label("Ballots")
+        public int ballots;
+
+        /** Number of candidates. */
+        @Label("Candidates")
+        public int candidates;
+
+        /** Number of threads the ballots were split over, 1 when serial. */
+        @Label("Threads")
+        public int threads;
+    }
+
+    /**
+     * One round of an STV count, which elects or eliminates candidates and moves ballots on.
+     */
+    @Name("election.Round")
+    @Label("STV Round")
+    @Category("Election")
+    @Description("One round of an STV count")
+    public static class Round extends Event {
+
+        /** The counting method: "STV", "WIGM" or "Meek STV". */
+        @Label("Method")
+        public String method;
+
+        /** The round number, starting at 1. */
+        @Label("Round")
+        public int round;
+
+        /** Names of the candidates elected in the round, separated by commas. */
+        @Label("Elected")
+        public String elected;
+
+        /** Name of the candidate eliminated in the round, or empty. */
+        @Label("Eliminated")
+        public String eliminated;
+
+        /** Number of ballots handed to a candidate or recounted in the round. */
+        @Label("Ballots Transferred")
+        public int ballotsTransferred;
+    }
+
+    /**
+     * Writing the audit of an election.
+     */
+    @Name("election.Audit")
+    @Label("Audit Writing")
+    @Category("Election")
+    @Description("Writing the audit of an election")
+    public static class Audit extends Event {
+
+        /** The election type, such as "STV". */
+        @Label("Election")
+        public String election;
+
+        /** The audit file, or empty when the audit is kept in memory. */
+        @Label("Audit File")
+        public String filename;
+
+        /** Number of ballots listed in the audit. */
+        @Label("Ballots")
+        public int ballots;
+    }
+
+    /** No instances, the events are created directly. */
+    private ElectionEvents() {
+    }
+
+    /**
+     * Joins the names of the candidates added to a list since it had the given size.
+     *
+     * @param candidates The list, such as the winners.
+     * @param from The size of the list before the round.
+     * @return The names separated by commas, or empty if none were added.
+     */
+    public static String namesSince(ArrayList<Candidate> candidates, int from) {
+        StringBuilder names = new StringBuilder();
+        for (int i = from; i < candidates.size(); i++) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(candidates.get(i).getName());
+        }
+        return names.toString();
+    }
+}
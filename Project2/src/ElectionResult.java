@@ -0,0 +1,217 @@
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Outcome of one election run by the TabulationService. A successful result holds the
+ * winners and losers, the results text that Main would display and the audit, either as
+ * the audit file or, when no audit filename was given, as text. A failed result only holds
+ * a description of the problem.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class ElectionResult {
+
+    /** Name of the election type, such as "Plurality" or "STV". */
+    private final String electionName;
+
+    /** Number of ballots cast. */
+    private final int numBallots;
+
+    /** Number of seats filled. */
+    private final int numSeats;
+
+    /** Number of candidates. */
+    private final int numCandidates;
+
+    /** Winners in the order they were decided. */
+    private final ArrayList<Candidate> winners;
+
+    /** Losers in the order they were decided. */
+    private final ArrayList<Candidate> losers;
+
+    /** The results text, as Main displays it. */
+    private final String results;
+
+    /** The audit file, or null if the audit was kept in memory. */
+    private final File auditFile;
+
+    /** The audit text, or null if the audit was written to a file. */
+    private final String auditText;
+
+    /** Timings of each phase of the election, or null if the election failed. */
+    private final PhaseMetrics metrics;
+
+    /** Description of the problem when the election failed, otherwise null. */
+    private final String error;
+
+    /** Description of why the metrics file could not be written, otherwise null. */
+    private String metricsError;
+
+    /**
+     * Constructs the result of an election that was counted.
+     *
+     * @param election The counted election.
+     * @param results The results text.
+     * @param auditFile The audit file, or null if the audit was kept in memory.
+     * @param auditText The audit text, or null if the audit was written to a file.
+     */
+    public ElectionResult(Election election, String results, File auditFile, String auditText) {
+        electionName = election.getElectionName();
+        numBallots = election.getNumBallots();
+        numSeats = election.getNumSeats();
+        numCandidates = election.getNumCandidates();
+        winners = election.getWinners();
+        losers = election.getLosers();
+        this.results = results;
+        this.auditFile = auditFile;
+        this.auditText = auditText;
+        metrics = election.getMetrics();
+        error = null;
+    }
+
+    /**
+     * Constructs the result of an election that failed.
+     *
+     * @param error A description of the problem.
+     */
+    public ElectionResult(String error) {
+        electionName = null;
+        numBallots = 0;
+        numSeats = 0;
+        numCandidates = 0;
+        winners = new ArrayList<>();
+        losers = new ArrayList<>();
+        results = null;
+        auditFile = null;
+        auditText = null;
+        metrics = null;
+        this.error = error;
+    }
+
+    /**
+     * Checks if the election was counted.
+     *
+     * @return true if the election was counted, false if it failed.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Retrieves a description of why the election failed.
+     *
+     * @return The error message, or null if the election was counted.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Records that the election was counted and audited, but its metrics file could not be written.
+     *
+     * @param metricsError A description of the problem.
+     */
+    public void setMetricsError(String metricsError) {
+        this.metricsError = metricsError;
+    }
+
+    /**
+     * Retrieves a description of why the metrics file could not be written. The election
+     * itself still succeeded and its audit file was written.
+     *
+     * @return The error message, or null if the metrics were written or not needed.
+     */
+    public String getMetricsError() {
+        return metricsError;
+    }
+
+    /**
+     * Retrieves the name of the election type.
+     *
+     * @return The election name, or null if the election failed.
+     */
+    public String getElectionName() {
+        return electionName;
+    }
+
+    /**
+     * Retrieves the number of ballots cast.
+     *
+     * @return The number of ballots.
+     */
+    public int getNumBallots() {
+        return numBallots;
+    }
+
+    /**
+     * Retrieves the number of seats filled.
+     *
+     * @return The number of seats.
+     */
+    public int getNumSeats() {
+        return numSeats;
+    }
+
+    /**
+     * Retrieves the number of candidates.
+     *
+     * @return The number of candidates.
+     */
+    public int getNumCandidates() {
+        return numCandidates;
+    }
+
+    /**
+     * Retrieves the winners.
+     *
+     * @return The winners in the order they were decided.
+     */
+    public ArrayList<Candidate> getWinners() {
+        return winners;
+    }
+
+    /**
+     * Retrieves the losers.
+     *
+     * @return The losers in the order they were decided.
+     */
+    public ArrayList<Candidate> getLosers() {
+        return losers;
+    }
+
+    /**
+     * Retrieves the results text, as Main displays it.
+     *
+     * @return The results, or null if the election failed.
+     */
+    public String getResults() {
+        return results;
+    }
+
+    /**
+     * Retrieves the audit file.
+     *
+     * @return The audit file, or null if the audit was kept in memory.
+     */
+    public File getAuditFile() {
+        return auditFile;
+    }
+
+    /**
+     * Retrieves the audit text.
+     *
+     * @return The audit text, or null if the audit was written to a file.
+     */
+    public String getAuditText() {
+        return auditText;
+    }
+
+    /**
+     * Retrieves the wall time, CPU time, allocations and ballot throughput of each phase.
+     *
+     * @return The metrics, or null if the election failed.
+     */
+    public PhaseMetrics getMetrics() {
+        return metrics;
+    }
+}
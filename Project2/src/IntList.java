@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints. Used where an ArrayList of Integers would
+ * box every value, such as lists of ballot rows or ballot IDs.
+ *
+ * @author Zach Larsen
+ */
+public class IntList {
+
+    /** Backing array of the list. Only the first size entries are used. */
+    private int[] values;
+
+    /** Number of values in the list. */
+    private int size;
+
+    /**
+     * Constructs an empty IntList.
+     */
+    public IntList() {
+        this(8);
+    }
+
+    /**
+     * Constructs an empty IntList with room for the given number of values.
+     *
+     * @param capacity The number of values the list can hold before growing.
+     */
+    public IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+        size = 0;
+    }
+
+    /**
+     * Adds a value to the end of the list.
+     *
+     * @param value The value to add.
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Adds every value of another list to the end of this list, in order.
+     *
+     * @param other The list whose values are added.
+     */
+    public void addAll(IntList other) {
+        if (size + other.size > values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+        }
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Retrieves the value at the given position.
+     *
+     * @param index The position in the list.
+     * @return The value at that position.
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Replaces the value at the given position.
+     *
+     * @param index The position in the list.
+     * @param value The new value.
+     */
+    public void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Retrieves the number of values in the list.
+     *
+     * @return The size of the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every value from the list.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copies the values of the list into a new array.
+     *
+     * @return An array holding the values in list order.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
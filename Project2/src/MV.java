@@ -1,6 +1,4 @@
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Creates and execute an MV election. This includes adding votes, determining the winners
@@ -30,39 +28,53 @@ public class MV extends DirectSelection{
   }
 
   /**
-   * Calls all helper functions to run a Plurality election from start to finish.
+   * Constructor for MV class that tabulates ballots already held in a BallotStore.
+   * @param numSeats Number of seats available in the Election
+   * @param numCandidates Number of candidates running in the Election
+   * @param numBallots Number of ballots cast in the Election
+   * @param candidates List of all candidates running in the Election
+   * @param ballotStore Columnar store of all ballots cast in the Election
+   * @param fileName A String specifying the name of the audit file
+   */
+  public MV(int numSeats, int numCandidates, int numBallots, ArrayList<Candidate> candidates, BallotStore ballotStore, String fileName){
+    this.numSeats = numSeats;
+    this.numBallots = numBallots;
+    this.numCandidates = numCandidates;
+    this.candidates = candidates;
+    this.ballotStore = ballotStore;
+    this.fileName = fileName;
+  }
+
+  /**
+   * Get the name of the election type.
+   * @return "Municipal Voting"
    */
-  public void startElection(){
-    tabulateVotes();
-    determine_Winner_Loser();
-    displayResults("Municipal Voting");
-    generateAudit("Municipal Voting");
+  public String getElectionName(){
+    return "Municipal Voting";
   }
 
   /**
    * Go through all cast ballots and increment a Candidates vote count by
-   * one for every vote they receive in a ballot.
+   * one for every vote they receive in a ballot. Large elections are counted in
+   * parallel when setParallelism has been given more than one thread.
    */
   public void tabulateVotes(){
-    //Loop through all ballots in the list
-    for (Ballot ballot : ballots){
-      HashMap<Candidate, Integer> ranking = ballot.getRankings();
-
-      Candidate personVotedFor = null;
-
-      //Loop through all candidate,int pairs in the HashMap stored in the ballot
-      for (Map.Entry<Candidate,Integer> entry : ranking.entrySet()){
-        Integer value = entry.getValue();
-        //If the value is 1 that means the candidate received the vote
-        if(value == 1){
-          personVotedFor = entry.getKey();
-        }
+    tabulate(this::countMarks);
+  }
 
-        //Assign a candidate a vote by incrementing the vote count and assign that ballot to them
-        if(personVotedFor != null){
-          personVotedFor.incrementVoteCount();
-          personVotedFor.addBallot(ballot);
-          personVotedFor = null;
+  /**
+   * Count every mark on each ballot in a range of rows. A candidate marked with a 1 receives a vote.
+   * @param store the store holding the ballots
+   * @param start the first row to count
+   * @param end the row after the last row to count
+   * @param tally the tally the votes are counted into
+   */
+  private void countMarks(BallotStore store, int start, int end, Tally tally){
+    int numColumns = store.getNumColumns();
+    for (int row = start; row < end; row++){
+      for (int column = 0; column < numColumns; column++){
+        if (store.getRank(row, column) == 1){
+          tally.award(column, row);
         }
       }
     }
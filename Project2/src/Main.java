@@ -1,6 +1,12 @@
 import java.util.*;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -66,6 +72,15 @@ public class Main {
                 shuffle = false;
                 System.out.println("Ballot shuffling is disabled.\n");
             }
+            else if (args.length == 1 && args[0].equals("-wigm")){
+                // fractional surplus transfers do not depend on the order of the ballots
+                shuffle = false;
+                System.out.println("Fractional surplus transfer is enabled, ballots are not shuffled.\n");
+            }
+            else if (args.length == 1 && args[0].equals("-meek")){
+                shuffle = false;
+                System.out.println("Meek STV counting is enabled, ballots are not shuffled.\n");
+            }
             else if (args.length == 0){
                 System.out.println("Ballot shuffling is enabled.\n");
             }
@@ -76,6 +91,92 @@ public class Main {
         return shuffle;
     }
 
+    /**
+     * Parses command-line arguments to determine if STV surpluses are transferred at fractional
+     * weights (Gregory/WIGM) instead of electing candidates the moment they reach the quota.
+     *
+     * @param args The command-line arguments passed to the program.
+     * @param electionType The type of election selected (0 for Plurality, 1 for STV, 2 for MV).
+     * @return true if the -wigm flag was given for an STV election, false otherwise.
+     */
+    public static boolean parseSurplusOption(String[] args, int electionType){
+        return electionType == 1 && args.length == 1 && args[0].equals("-wigm");
+    }
+
+    /**
+     * Parses command-line arguments to determine if an STV election is counted with Meek's method.
+     *
+     * @param args The command-line arguments passed to the program.
+     * @param electionType The type of election selected (0 for Plurality, 1 for STV, 2 for MV).
+     * @return true if the -meek flag was given for an STV election, false otherwise.
+     */
+    public static boolean parseMeekOption(String[] args, int electionType){
+        return electionType == 1 && args.length == 1 && args[0].equals("-meek");
+    }
+
+    /**
+     * Parses command-line arguments to determine if the parsed ballots are kept in a binary
+     * cache, so later runs over the same election files skip parsing. The -cache flag can be
+     * given alongside any other flag.
+     *
+     * @param args The command-line arguments passed to the program.
+     * @return true if the -cache flag was given, false otherwise.
+     */
+    public static boolean parseCacheOption(String[] args){
+        return Arrays.asList(args).contains("-cache");
+    }
+
+    /**
+     * Removes the -cache flag from the command-line arguments, leaving the flags that
+     * choose how the election is counted.
+     *
+     * @param args The command-line arguments passed to the program.
+     * @return The arguments without any -cache flag.
+     */
+    public static String[] removeCacheOption(String[] args){
+        return removeOption(args, "-cache");
+    }
+
+    /**
+     * Parses command-line arguments to determine if a Plurality or MV election is counted while
+     * its files are parsed, so its ballots are never held in memory. The -stream flag can be given
+     * alongside any other flag and is ignored for other election types.
+     *
+     * @param args The command-line arguments passed to the program.
+     * @return true if the -stream flag was given, false otherwise.
+     */
+    public static boolean parseStreamOption(String[] args){
+        return Arrays.asList(args).contains("-stream");
+    }
+
+    /**
+     * Removes the -stream flag from the command-line arguments, leaving the flags that
+     * choose how the election is counted.
+     *
+     * @param args The command-line arguments passed to the program.
+     * @return The arguments without any -stream flag.
+     */
+    public static String[] removeStreamOption(String[] args){
+        return removeOption(args, "-stream");
+    }
+
+    /**
+     * Removes every copy of a flag from the command-line arguments.
+     *
+     * @param args The command-line arguments passed to the program.
+     * @param option The flag to remove.
+     * @return The arguments without the flag.
+     */
+    private static String[] removeOption(String[] args, String option){
+        ArrayList<String> remaining = new ArrayList<>();
+        for (String arg : args){
+            if (!arg.equals(option)){
+                remaining.add(arg);
+            }
+        }
+        return remaining.toArray(new String[0]);
+    }
+
     /**
      * Prompts the user for the election data filename(s).
      * Multiple file paths can be entered, and the user ends the input with 'q'.
@@ -136,19 +237,202 @@ public class Main {
         System.out.println("Please enter a filename for the audit to be save to");
         System.out.println("The output file will be in the form .txt");
 
+        String auditFilename = userInput.nextLine();
+        if (!isValidAuditName(auditFilename)){
+            return "Invalid";
+        }
+
+        auditFilename = auditFilename.concat(".txt");
+        return auditFilename;
+    }
+
+    /**
+     * Checks that an audit name can be used as a filename.
+     *
+     * @param auditName The audit name, without the .txt extension or any directory.
+     * @return true if the name is not empty and has no characters that can't be in filenames.
+     */
+    public static boolean isValidAuditName(String auditName){
         // Characters that can't be in filenames for most operating systems
         String illegalCharacters = "[#%&{}<>*?/$\"':@+`|=^ ]";
         Pattern pattern = Pattern.compile(illegalCharacters);
+        Matcher match = pattern.matcher(auditName);
 
-        String auditFilename = userInput.nextLine();
-        Matcher match = pattern.matcher(auditFilename);
+        return !match.find() && !auditName.isEmpty();
+    }
 
-        if (match.find() || auditFilename.isEmpty()){
-            return "Invalid";
+    /**
+     * Parses one line of a batch manifest into the election it describes. A line holds the
+     * audit name, then the election files and any flags, separated by spaces:
+     * audit election.csv [more.csv ...] [-ns | -wigm | -meek] [-cache] [-stream]
+     * The audit name may include a directory and gets a .txt extension like an audit name
+     * entered at the prompt. Relative paths are resolved against the manifest's directory.
+     *
+     * @param line The manifest line, without comments.
+     * @param directory The directory of the manifest.
+     * @return The election the line describes, or null if the line is invalid.
+     */
+    public static ElectionDefinition parseManifestLine(String line, Path directory){
+        String[] tokens = line.trim().split("\\s+");
+        String audit = tokens[0];
+        if (audit.endsWith(".txt")){
+            audit = audit.substring(0, audit.length() - ".txt".length());
+        }
+        Path auditPath = directory.resolve(audit);
+        if (audit.endsWith("/") || auditPath.getFileName() == null || !isValidAuditName(auditPath.getFileName().toString())){
+            return null;
         }
 
-        auditFilename = auditFilename.concat(".txt");
-        return auditFilename;
+        ArrayList<String> filenames = new ArrayList<>();
+        String method = null;
+        boolean cache = false;
+        boolean stream = false;
+        for (int i = 1; i < tokens.length; i++){
+            String token = tokens[i];
+            if (token.equals("-ns") || token.equals("-wigm") || token.equals("-meek")){
+                // Only one way of counting STV can be chosen
+                if (method != null){
+                    return null;
+                }
+                method = token;
+            }
+            else if (token.equals("-cache")){
+                cache = true;
+            }
+            else if (token.equals("-stream")){
+                stream = true;
+            }
+            else if (token.endsWith(".csv")){
+                String filename = directory.resolve(token).toString();
+                if (filenames.contains(filename)){
+                    return null;
+                }
+                filenames.add(filename);
+            }
+            else {
+                return null;
+            }
+        }
+        if (filenames.isEmpty()){
+            return null;
+        }
+
+        ElectionDefinition definition = new ElectionDefinition(filenames);
+        definition.setAuditFilename(auditPath + ".txt");
+        definition.setShuffle(method == null);
+        definition.setFractionalSurplus("-wigm".equals(method));
+        definition.setMeek("-meek".equals(method));
+        definition.setStreaming(stream);
+        if (cache){
+            definition.setCacheFile(BallotCache.cacheFileFor(filenames));
+        }
+        return definition;
+    }
+
+    /**
+     * Reads a batch manifest with one election per line. Blank lines and anything after
+     * a '#' are ignored. Every invalid line is reported before giving up, so a manifest
+     * can be fixed in one pass.
+     *
+     * @param manifestFilename The filename of the manifest.
+     * @return The elections in manifest order, or null if the manifest can not be read or has invalid lines.
+     */
+    public static ArrayList<ElectionDefinition> readManifest(String manifestFilename){
+        Path manifest = Path.of(manifestFilename).toAbsolutePath();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(manifest);
+        } catch (IOException e){
+            System.err.println("Could not read manifest " + manifestFilename);
+            return null;
+        }
+
+        ArrayList<ElectionDefinition> definitions = new ArrayList<>();
+        HashSet<String> auditFilenames = new HashSet<>();
+        boolean valid = true;
+        for (int i = 0; i < lines.size(); i++){
+            String line = lines.get(i);
+            int comment = line.indexOf('#');
+            if (comment != -1){
+                line = line.substring(0, comment);
+            }
+            if (line.isBlank()){
+                continue;
+            }
+
+            ElectionDefinition definition = parseManifestLine(line, manifest.getParent());
+            if (definition == null){
+                System.err.printf("Invalid manifest line %d: %s\n", i + 1, lines.get(i).trim());
+                valid = false;
+            }
+            else if (!auditFilenames.add(definition.getAuditFilename())){
+                System.err.printf("Manifest line %d repeats the audit file %s\n", i + 1, definition.getAuditFilename());
+                valid = false;
+            }
+            else {
+                definitions.add(definition);
+            }
+        }
+
+        if (definitions.isEmpty() && valid){
+            System.err.println("The manifest " + manifestFilename + " has no elections.");
+            return null;
+        }
+        return valid ? definitions : null;
+    }
+
+    /**
+     * Runs every election of a batch manifest without any prompts. Independent elections are
+     * counted at the same time, one per thread, and their results are printed in manifest order.
+     *
+     * @param manifestFilename The filename of the manifest.
+     * @param threads The number of elections counted at the same time.
+     * @return 0 if every election was counted and audited, -1 otherwise.
+     */
+    public static int runManifest(String manifestFilename, int threads){
+        ArrayList<ElectionDefinition> definitions = readManifest(manifestFilename);
+        if (definitions == null){
+            return -1;
+        }
+
+        int failures = 0;
+        try (TabulationService service = new TabulationService(threads)){
+            ArrayList<Future<ElectionResult>> pending = new ArrayList<>();
+            for (ElectionDefinition definition : definitions){
+                pending.add(service.submit(definition));
+            }
+
+            for (int i = 0; i < pending.size(); i++){
+                String audit = definitions.get(i).getAuditFilename();
+                ElectionResult result;
+                try {
+                    result = pending.get(i).get();
+                } catch (ExecutionException e){
+                    result = new ElectionResult("The election could not be counted: " + e.getCause());
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+                // Release each election once it is printed so finished elections do not pile up
+                pending.set(i, null);
+
+                if (result.isSuccess()){
+                    System.out.printf("Election %d of %d, audit %s\n", i + 1, pending.size(), audit);
+                    System.out.print(result.getResults());
+                    System.out.println();
+                    if (result.getMetricsError() != null){
+                        System.err.printf("Election %d of %d, audit %s: %s\n", i + 1, pending.size(), audit, result.getMetricsError());
+                    }
+                }
+                else {
+                    System.err.printf("Election %d of %d, audit %s failed: %s\n", i + 1, pending.size(), audit, result.getError());
+                    failures++;
+                }
+            }
+        }
+
+        System.out.printf("%d of %d elections counted.\n", definitions.size() - failures, definitions.size());
+        return failures == 0 ? 0 : -1;
     }
 
     /**
@@ -323,77 +607,52 @@ public class Main {
     public static void main(String[] args) {
         // Main driver
 
+        // Run a batch manifest without any prompts
+        if (args.length == 2 && args[0].equals("-manifest")){
+            int status = runManifest(args[1], Runtime.getRuntime().availableProcessors());
+            if (status != 0){
+                System.exit(status);
+            }
+            return;
+        }
+
         // Let the user begin their input
         Scanner userInput = new Scanner(System.in);
         // Get all the filenames
         ArrayList<String> electionFilenames = parseFilenames(userInput);
 
-        // Create the fie scanners
-        ArrayList<Scanner> fileScanners = createFileScanners(electionFilenames);
-
-        // error checking
-        if (fileScanners == null){
-            System.exit(-1);
-            System.err.println("List of scanners is null, an error occurred");
+        // Read and validate every election file in parallel
+        BallotLoader loader = new BallotLoader(electionFilenames);
+        if (parseCacheOption(args)){
+            loader.setCacheFile(BallotCache.cacheFileFor(electionFilenames));
+            args = removeCacheOption(args);
         }
-
-        // Get the election type
-        int electionType = parseElectionType(fileScanners.getFirst());
-        if (electionType == -1){
-            System.err.println("Invalid election type.");
-            System.exit(-1);
+        if (parseStreamOption(args)){
+            loader.setStreaming(true);
+            args = removeStreamOption(args);
         }
-
-        // Get shuffle status
-        boolean shuffle = parseShuffleOption(args, electionType);
-
-        // Get number of seats
-        int numSeats = parseNumSeats(fileScanners.getFirst());
-        if (numSeats == -1){
-            System.err.println("Invalid number of seats entered in file.");
+        PhaseMetrics metrics = new PhaseMetrics();
+        metrics.start("load");
+        loader.setWorkerUsage(metrics.getWorkerUsage());
+        if (!loader.load()){
+            System.err.println(loader.getError());
             System.exit(-1);
         }
-
-        // Get number of candidates
-        int numCandidates = parseNumCandidates(fileScanners.getFirst());
-        if (numCandidates == -1){
-            System.err.println("Invalid number of candidates entered in file.");
-            System.exit(-1);
+        metrics.stop(loader.getNumBallots());
+        if (loader.isFromCache()){
+            System.out.println("Ballots were read from the ballot cache.\n");
         }
-
-        // The following nested loop moves the file pointer to the same place that the
-        // file pointer at index 0 is now at after going through the previous functions
-        for (int i = 0; i < fileScanners.size(); i++) {
-            if (i == 0){
-                continue;
-            }
-            for (int j = 0; j < 3; j++) {
-                fileScanners.get(i).nextLine();
-            }
+        if (loader.isStreaming()){
+            System.out.println("Ballots are counted as the election files are read.\n");
         }
 
-        // Get the number of ballots
-        int numBallots = parseNumBallots(fileScanners);
-        System.out.println(numBallots);
-        if (numBallots == -1){
-            System.err.println("Invalid number of ballots entered in file.");
-            System.exit(-1);
-        }
-
-        // Get the list of candidates
-        ArrayList<Candidate> candidates = readCandidates(fileScanners.getFirst());
+        // Get the election header values
+        int electionType = loader.getElectionType();
+        int numBallots = loader.getNumBallots();
 
-        // Same situation as above, get the file pointers for the rest of the
-        // files to be pointing at the same line as the scanner at index 0
-        for (int i = 0; i < fileScanners.size(); i++){
-            if (i == 0){
-                continue;
-            }
-            fileScanners.get(i).nextLine();
-        }
-
-        // Get all the ballots
-        ArrayList<Ballot> ballots = readBallots(fileScanners, candidates);
+        // Get shuffle status
+        boolean shuffle = parseShuffleOption(args, electionType);
+        System.out.println(numBallots);
 
         // Get the filename string for the audit file
         String auditFilename = parseAuditFilename(userInput);
@@ -402,25 +661,45 @@ public class Main {
             System.exit(-1);
         }
 
-        // Close all the scanners
+        // Close the user input scanner
         userInput.close();
 
-        for (Scanner filescanner : fileScanners){
-            filescanner.close();
-        }
+        // Describe the election the flags selected
+        ElectionDefinition definition = new ElectionDefinition(electionFilenames);
+        definition.setAuditFilename(auditFilename);
+        definition.setShuffle(shuffle);
+        definition.setFractionalSurplus(parseSurplusOption(args, electionType));
+        definition.setMeek(parseMeekOption(args, electionType));
+        definition.setParallelism(Runtime.getRuntime().availableProcessors());
 
         // Call the selected election type
-        if (electionType == 1){
-            STV stv = new STV(shuffle, numSeats, numCandidates, numBallots, candidates, ballots, auditFilename);
-            stv.startElection();
+        Election election = TabulationService.createElection(definition, loader);
+        if (election == null){
+            System.err.println("Invalid election type.");
+            System.exit(-1);
         }
-        else if (electionType == 0) {
-            Plurality plurality = new Plurality(numSeats, numCandidates, numBallots, candidates, ballots, auditFilename);
-            plurality.startElection();
+        election.setMetrics(metrics);
+        try {
+            election.countElection();
+        } catch (IllegalArgumentException e) {
+            // a streamed election only finds invalid ballots while it is counted
+            System.err.println(e.getMessage());
+            System.exit(-1);
+        } catch (UncheckedIOException e) {
+            // or fails to spill its ballot IDs to disk
+            System.err.println("Could not spill the ballot IDs: " + e.getCause().getMessage());
+            System.exit(-1);
+        }
+        election.displayResults(election.getElectionName());
+        if (election.generateAudit(election.getElectionName()) == null){
+            System.exit(-1);
         }
-        else if (electionType == 2){
-            MV mv = new MV(numSeats, numCandidates, numBallots, candidates, ballots, auditFilename);
-            mv.startElection();
+
+        // Keep the phase timings next to the audit file
+        try {
+            election.writeMetricsFile();
+        } catch (IOException e) {
+            System.err.println("Could not write the metrics file: " + e.getMessage());
         }
     }
 }
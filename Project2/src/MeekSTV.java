@@ -0,0 +1,658 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Creates and executes an STV election counted with Meek's method. Every elected candidate
+ * has a keep value, the share of each vote reaching them that they keep, and the rest of the
+ * vote passes on to the next preference. Keep values are recomputed until every elected
+ * candidate holds the quota, then hopeful candidates who reach the quota are elected or the
+ * lowest hopeful is excluded, and the count repeats until the seats are filled.
+ *
+ * Ballots with identical preference orders are grouped before counting, so each iteration is
+ * proportional to the number of distinct orders instead of the number of ballots. The time and
+ * convergence of every iteration are recorded and can be read back after the election.
+ *
+ * @author Amelia Lunning
+ */
+public class MeekSTV extends Election {
+
+    /** Default largest relative difference between an elected candidate's votes and the quota at convergence. */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    /** Default largest number of iterations spent on one round before it is treated as converged. */
+    public static final int DEFAULT_MAX_ITERATIONS = 1000;
+
+    /** Largest relative difference between an elected candidate's votes and the quota at convergence. */
+    private double tolerance = DEFAULT_TOLERANCE;
+
+    /** Largest number of iterations spent on one round before it is treated as converged. */
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+
+    /** Candidate columns of every distinct preference order, one order after another. */
+    private int[] orderColumns;
+
+    /** Start of each distinct order in orderColumns, with one extra entry marking the end. */
+    private int[] orderStarts;
+
+    /** Number of ballots cast with each distinct order. */
+    private int[] orderCounts;
+
+    /** Number of ballots grouped, the sum of orderCounts. */
+    private int countedBallots;
+
+    /** First row cast with each distinct order. Orders are numbered in the order of these rows. */
+    private int[] orderFirstRows;
+
+    /** Distinct order of each group of identical ballots. */
+    private int[] groupOrders;
+
+    /** Share of each vote reaching a candidate that the candidate keeps. */
+    private double[] keepValues;
+
+    /** Votes each candidate column received in the latest iteration. */
+    private double[] votes;
+
+    /** Rank of each candidate column's first vote, or 0 while the column has had no votes. */
+    private int[] firstVoteRanks;
+
+    /** Position of each candidate column's first vote in the count, across rounds. */
+    private long[] firstVoteIndexes;
+
+    /** Quota of the latest iteration. */
+    private double quota;
+
+    /** Votes that reached no candidate in the latest iteration. */
+    private double exhausted;
+
+    /** Time, convergence and quota of every iteration, in the order they were run. */
+    private ArrayList<Iteration> iterations = new ArrayList<>();
+
+    /**
+     * Time and convergence of a single pass over the grouped ballots.
+     */
+    public static class Iteration {
+
+        /** Round the iteration belongs to. A round ends when a candidate is elected or excluded. */
+        private final int round;
+
+        /** Time the iteration took in nanoseconds. */
+        private final long nanos;
+
+        /** Largest relative difference between an elected candidate's votes and the quota. */
+        private final double maxError;
+
+        /** Quota of the iteration. */
+        private final double quota;
+
+        /**
+         * Constructor for Iteration.
+         * @param round The round the iteration belongs to.
+         * @param nanos The time the iteration took in nanoseconds.
+         * @param maxError The largest relative difference between an elected candidate's votes and the quota.
+         * @param quota The quota of the iteration.
+         */
+        public Iteration(int round, long nanos, double maxError, double quota) {
+            this.round = round;
+            this.nanos = nanos;
+            this.maxError = maxError;
+            this.quota = quota;
+        }
+
+        /**
+         * Retrieves the round the iteration belongs to.
+         * @return The round, starting at 1.
+         */
+        public int getRound() {
+            return round;
+        }
+
+        /**
+         * Retrieves the time the iteration took.
+         * @return The time in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Retrieves how far the iteration was from convergence.
+         * @return The largest relative difference between an elected candidate's votes and the quota.
+         */
+        public double getMaxError() {
+            return maxError;
+        }
+
+        /**
+         * Retrieves the quota of the iteration.
+         * @return The quota.
+         */
+        public double getQuota() {
+            return quota;
+        }
+    }
+
+    /**
+     * Constructor for MeekSTV
+     * @param numSeats: number of seats to fill
+     * @param numCandidates: number of candidates
+     * @param numBallots: number of ballots
+     * @param candidates: list of candidate objects
+     * @param ballots: list of ballot objects
+     * @param fileName: name of the audit file to be created
+     */
+    public MeekSTV(int numSeats, int numCandidates, int numBallots, ArrayList<Candidate> candidates, ArrayList<Ballot> ballots, String fileName) {
+        this.numSeats = numSeats;
+        this.numBallots = numBallots;
+        this.numCandidates = numCandidates;
+        this.candidates = candidates;
+        this.ballots = ballots;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Constructor for MeekSTV that counts ballots already held in a BallotStore
+     * @param numSeats: number of seats to fill
+     * @param numCandidates: number of candidates
+     * @param numBallots: number of ballots
+     * @param candidates: list of candidate objects
+     * @param ballotStore: columnar store of all ballots
+     * @param fileName: name of the audit file to be created
+     */
+    public MeekSTV(int numSeats, int numCandidates, int numBallots, ArrayList<Candidate> candidates, BallotStore ballotStore, String fileName) {
+        this.numSeats = numSeats;
+        this.numBallots = numBallots;
+        this.numCandidates = numCandidates;
+        this.candidates = candidates;
+        this.ballotStore = ballotStore;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Sets how close every elected candidate must be to the quota for a round to converge.
+     *
+     * @param tolerance The largest relative difference between an elected candidate's votes and the quota.
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Sets the largest number of iterations spent on one round.
+     *
+     * @param maxIterations The largest number of iterations per round.
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Retrieves the time and convergence of every iteration run so far.
+     *
+     * @return The iterations, in the order they were run.
+     */
+    public ArrayList<Iteration> getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Retrieves the number of distinct preference orders the ballots were grouped into.
+     *
+     * @return The number of distinct orders, or 0 before the ballots are grouped.
+     */
+    public int getNumOrders() {
+        return orderCounts == null ? 0 : orderCounts.length;
+    }
+
+    /**
+     * Retrieves the votes a candidate received in the latest iteration.
+     *
+     * @param candidate The candidate.
+     * @return The candidate's votes, including fractions.
+     */
+    public double getVotes(Candidate candidate) {
+        int column = getBallotStore().getColumn(candidate);
+        return column == -1 || votes == null ? 0 : votes[column];
+    }
+
+    /**
+     * Retrieves the quota of the latest iteration.
+     *
+     * @return The quota.
+     */
+    public double getQuota() {
+        return quota;
+    }
+
+    /**
+     * Groups the ballots by preference order. A ballot's order is the columns it ranked
+     * 1, 2, 3 and so on, stopping at the first rank it skipped. Identical ballots always
+     * share an order, so the order is worked out once for each group of identical ballots.
+     */
+    public void groupBallots() {
+        BallotGroups groups = getBallotGroups();
+        BallotStore store = groups.getStore();
+        HashMap<OrderKey, Integer> orders = new HashMap<>();
+        IntList columns = new IntList();
+        IntList starts = new IntList();
+        IntList counts = new IntList();
+        IntList firstRows = new IntList();
+        groupOrders = new int[groups.size()];
+        int[] order = new int[store.getNumColumns()];
+
+        for (int group = 0; group < groups.size(); group++) {
+            int row = groups.getRepresentative(group);
+            int length = 0;
+            int column = store.getRankColumn(row, 1);
+            while (column != -1 && length < order.length) {
+                order[length] = column;
+                length++;
+                column = store.getRankColumn(row, length + 1);
+            }
+
+            OrderKey key = new OrderKey(Arrays.copyOf(order, length));
+            Integer orderIndex = orders.get(key);
+            if (orderIndex == null) {
+                orderIndex = counts.size();
+                orders.put(key, orderIndex);
+                starts.add(columns.size());
+                for (int i = 0; i < length; i++) {
+                    columns.add(order[i]);
+                }
+                counts.add(0);
+                firstRows.add(row);
+            }
+            counts.set(orderIndex, counts.get(orderIndex) + groups.getCount(group));
+            groupOrders[group] = orderIndex;
+        }
+        starts.add(columns.size());
+
+        orderColumns = columns.toArray();
+        orderStarts = starts.toArray();
+        orderCounts = counts.toArray();
+        countedBallots = 0;
+        for (int count : orderCounts) {
+            countedBallots += count;
+        }
+        orderFirstRows = firstRows.toArray();
+    }
+
+    /**
+     * Counts the election with Meek's method until every seat is filled. Elected candidates
+     * are added to the winners and excluded candidates to the losers in the order it happens,
+     * followed by any candidates left over at the end.
+     */
+    public void distributeVotes() {
+        if (orderCounts == null) {
+            groupBallots();
+        }
+        BitSet active = getActiveCandidates();
+        int numColumns = getBallotStore().getNumColumns();
+        keepValues = new double[numColumns];
+        votes = new double[numColumns];
+        firstVoteRanks = new int[numColumns];
+        firstVoteIndexes = new long[numColumns];
+        for (int column = active.nextSetBit(0); column != -1; column = active.nextSetBit(column + 1)) {
+            keepValues[column] = 1;
+        }
+
+        int round = 1;
+        while (winners.size() < numSeats) {
+            ElectionEvents.Round event = new ElectionEvents.Round();
+            event.begin();
+            int roundWinners = winners.size();
+
+            // once the remaining candidates can only fill the remaining seats, they are all elected
+            if (active.cardinality() <= numSeats - winners.size()) {
+                countVotes();
+                for (int column : columnsByVotes(active)) {
+                    elect(column);
+                }
+                commitRound(event, round, roundWinners, null);
+                break;
+            }
+
+            converge(round);
+            recordFirstVotes(round);
+
+            // elect every hopeful candidate who reached the quota, highest votes first
+            boolean elected = false;
+            for (int column : columnsByVotes(active)) {
+                if (votes[column] >= quota && winners.size() < numSeats) {
+                    elect(column);
+                    elected = true;
+                }
+            }
+
+            // with no one new elected, the hopeful candidate with the fewest votes is excluded.
+            // Ties for the fewest are settled by first votes, as in STV
+            Candidate excluded = null;
+            if (!elected) {
+                int lowest = settleTies(active);
+                excluded = getBallotStore().getCandidate(lowest);
+                addLoser(excluded);
+                setStatus(excluded, "eliminated");
+                keepValues[lowest] = 0;
+            }
+            commitRound(event, round, roundWinners, excluded);
+            round++;
+        }
+        countVotes();
+
+        // add any remaining candidates to losers list
+        for (int column = active.nextSetBit(0); column != -1; column = active.nextSetBit(column + 1)) {
+            Candidate candidate = getBallotStore().getCandidate(column);
+            addLoser(candidate);
+            setStatus(candidate, "eliminated");
+        }
+        assignBallots();
+    }
+
+    /**
+     * Records a finished round of the count as a flight recorder event. Every ballot is
+     * passed down its preferences again in each iteration of a round, so all of them count
+     * as transferred.
+     *
+     * @param event        The round's event, begun when the round started.
+     * @param round        The round number.
+     * @param roundWinners The number of winners before the round.
+     * @param excluded     The candidate excluded in the round, or null.
+     */
+    private void commitRound(ElectionEvents.Round event, int round, int roundWinners, Candidate excluded) {
+        if (event.shouldCommit()) {
+            event.method = getElectionName();
+            event.round = round;
+            event.elected = ElectionEvents.namesSince(winners, roundWinners);
+            event.eliminated = excluded == null ? "" : excluded.getName();
+            event.ballotsTransferred = countedBallots;
+            event.commit();
+        }
+    }
+
+    /**
+     * Iterates the keep values of the elected candidates until each holds the quota, recording
+     * every iteration. Stops early after the maximum number of iterations.
+     *
+     * @param round The round being counted.
+     */
+    private void converge(int round) {
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            long start = System.nanoTime();
+            countVotes();
+            double maxError = 0;
+            for (Candidate winner : winners) {
+                int column = getBallotStore().getColumn(winner);
+                if (votes[column] > 0) {
+                    maxError = Math.max(maxError, Math.abs(votes[column] - quota) / quota);
+                    keepValues[column] = Math.min(1, keepValues[column] * quota / votes[column]);
+                }
+            }
+            iterations.add(new Iteration(round, System.nanoTime() - start, maxError, quota));
+            if (maxError <= tolerance) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Passes every group of ballots down its preference order. Each candidate keeps their keep
+     * value's share of what reaches them and passes on the rest. The quota is the votes that
+     * reached a candidate divided by one more than the number of seats. The ballots are those
+     * actually grouped, not the counts in the file headers, which may differ.
+     */
+    private void countVotes() {
+        Arrays.fill(votes, 0);
+        exhausted = 0;
+        for (int group = 0; group < orderCounts.length; group++) {
+            double remaining = orderCounts[group];
+            for (int i = orderStarts[group]; i < orderStarts[group + 1] && remaining > 0; i++) {
+                int column = orderColumns[i];
+                double kept = remaining * keepValues[column];
+                votes[column] += kept;
+                remaining -= kept;
+            }
+            exhausted += remaining;
+        }
+        quota = (countedBallots - exhausted) / (numSeats + 1);
+    }
+
+    /**
+     * Records the first vote of every column that received its first share of a vote in this
+     * round. Ballots are taken in store order, and a vote's position in the count is its row
+     * after every ballot of the earlier rounds, like the ballot index STV records.
+     *
+     * @param round The round being counted.
+     */
+    private void recordFirstVotes(int round) {
+        long roundStart = (long) (round - 1) * countedBallots;
+        for (int order = 0; order < orderCounts.length; order++) {
+            double remaining = 1;
+            for (int i = orderStarts[order]; i < orderStarts[order + 1] && remaining > 0; i++) {
+                int column = orderColumns[i];
+                double kept = remaining * keepValues[column];
+                if (kept > 0 && firstVoteRanks[column] == 0) {
+                    firstVoteRanks[column] = i - orderStarts[order] + 1;
+                    firstVoteIndexes[column] = roundStart + orderFirstRows[order];
+                }
+                remaining -= kept;
+            }
+        }
+    }
+
+    /**
+     * Picks the hopeful candidate to exclude: the one with the fewest votes and, among those
+     * tied for the fewest, the one who got their first vote last, with the same rule as
+     * STV.settleTies. The rank of the first vote is compared first, then its position in the
+     * count, and a candidate who never got a vote is excluded ahead of the others. Ballots are never
+     * shuffled for a Meek count, so the rule is the same for every run.
+     *
+     * @param active The mask of hopeful columns.
+     * @return The column of the candidate to exclude.
+     */
+    private int settleTies(BitSet active) {
+        int[] order = columnsByVotes(active);
+        double fewest = votes[order[order.length - 1]];
+        int tieLoser = -1;
+        long maxRank = -1;
+        long maxIndex = -1;
+        for (int column : order) {
+            if (votes[column] != fewest) {
+                continue;
+            }
+            long rank = firstVoteRanks[column] == 0 ? Long.MAX_VALUE : firstVoteRanks[column];
+            long index = firstVoteRanks[column] == 0 ? Long.MAX_VALUE : firstVoteIndexes[column];
+            if (rank > maxRank || (rank == maxRank && index > maxIndex)) {
+                maxRank = rank;
+                maxIndex = index;
+                tieLoser = column;
+            }
+        }
+        return tieLoser;
+    }
+
+    /**
+     * Elects the candidate of a column. Their keep value starts at 1 and is lowered as the count converges.
+     *
+     * @param column The column of the candidate.
+     */
+    private void elect(int column) {
+        Candidate candidate = getBallotStore().getCandidate(column);
+        addWinner(candidate);
+        setStatus(candidate, "eliminated");
+    }
+
+    /**
+     * Lists the active columns from the most votes to the fewest, in column order for equal votes.
+     *
+     * @param active The mask of active columns.
+     * @return The active columns.
+     */
+    private int[] columnsByVotes(BitSet active) {
+        Integer[] order = new Integer[active.cardinality()];
+        int next = 0;
+        for (int column = active.nextSetBit(0); column != -1; column = active.nextSetBit(column + 1)) {
+            order[next] = column;
+            next++;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(votes[b], votes[a]));
+        int[] columns = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            columns[i] = order[i];
+        }
+        return columns;
+    }
+
+    /**
+     * Sets each candidate's vote count to their final votes rounded down, and gives each ballot
+     * to the candidate who kept the largest share of it, so the audit lists every ballot once.
+     */
+    private void assignBallots() {
+        BallotStore store = getBallotStore();
+        for (int column = 0; column < votes.length; column++) {
+            store.getCandidate(column).setVoteCount((int) votes[column]);
+        }
+
+        int[] orderOwners = new int[orderCounts.length];
+        for (int order = 0; order < orderCounts.length; order++) {
+            double remaining = 1;
+            double largest = 0;
+            orderOwners[order] = -1;
+            for (int i = orderStarts[order]; i < orderStarts[order + 1] && remaining > 0; i++) {
+                int column = orderColumns[i];
+                double kept = remaining * keepValues[column];
+                if (kept > largest) {
+                    largest = kept;
+                    orderOwners[order] = column;
+                }
+                remaining -= kept;
+            }
+        }
+
+        // ballots are listed in store order under their candidate
+        BallotGroups groups = getBallotGroups();
+        for (int row = 0; row < store.size(); row++) {
+            int column = orderOwners[groupOrders[groups.getGroup(row)]];
+            store.setOwner(row, column);
+            if (column != -1) {
+                store.getCandidate(column).addBallotID(store.getBallotID(row));
+            }
+        }
+    }
+
+    /**
+     * Formats the election results, including the election type, number of ballots,
+     * seats to be filled, number of candidates, winners, losers and how many iterations
+     * the count took.
+     *
+     * @param electionName The name or type of the election to be displayed.
+     * @return The results text.
+     */
+    public String formatResults(String electionName){
+        StringBuilder results = new StringBuilder();
+        results.append(String.format("Election Type: %s\n", electionName));
+        results.append(String.format("Number of Ballots: %d\n", numBallots));
+        results.append(String.format("Seats to be Filled: %d\n", numSeats));
+        results.append(String.format("Number of Candidates: %d\n", numCandidates));
+
+        results.append("Winners:");
+        for (int i = 0; i < winners.size(); i++){
+            results.append(String.format(i == winners.size() - 1 ? " %s\n" : " %s,", winners.get(i).getName()));
+        }
+
+        // If there are no losers skip this output
+        if (!losers.isEmpty()) {
+            results.append("Losers:");
+            for (int i = 0; i < losers.size(); i++) {
+                results.append(String.format(i == losers.size() - 1 ? " %s\n" : " %s,", losers.get(i).getName()));
+            }
+        }
+
+        long nanos = 0;
+        for (Iteration iteration : iterations) {
+            nanos += iteration.getNanos();
+        }
+        results.append(String.format("Meek iterations: %d over %d distinct preference orders (%.1f ms)\n",
+                iterations.size(), getNumOrders(), nanos / 1e6));
+        return results.toString();
+    }
+
+    /**
+     * Writes the audit of the election: the winners and losers and, for each candidate,
+     * the ballots that gave them the largest share of their vote.
+     *
+     * @param writer The writer of the audit.
+     * @param electionName The name or type of the election to be recorded in the audit file.
+     * @throws IOException If the audit can not be written.
+     */
+    public void writeAudit(AuditWriter writer, String electionName) throws IOException{
+        writer.write(String.format("Election Type: %s\n", electionName));
+        writer.write(String.format("Number of Ballots: %d\n", numBallots));
+        writer.write(String.format("Seats to be Filled: %d\n", numSeats));
+        writer.write(String.format("Number of Candidates: %d\n", numCandidates));
+
+        for (Candidate winner : winners) {
+            writer.write(String.format("Winner: %s\n", winner.getName()));
+            writer.writeBallotOrder(winner.getName(), winner.getBallotIDs());
+        }
+
+        for (Candidate loser : losers) {
+            writer.write(String.format("Loser: %s\n", loser.getName()));
+            writer.writeBallotOrder(loser.getName(), loser.getBallotIDs());
+        }
+    }
+
+    /**
+     * Counts a Meek STV election by grouping the ballots and distributing the votes,
+     * recording each step in the election's metrics.
+     */
+    public void countElection() {
+        metrics.start("group");
+        groupBallots();
+        metrics.stop(numBallots);
+        metrics.start("distribute");
+        distributeVotes();
+        metrics.stop(numBallots);
+    }
+
+    /**
+     * Retrieves the name of the election type.
+     *
+     * @return "Meek STV"
+     */
+    public String getElectionName() {
+        return "Meek STV";
+    }
+
+    /**
+     * Preference order used as a hash key when grouping ballots.
+     */
+    private static final class OrderKey {
+
+        /** Candidate columns in preference order. */
+        private final int[] columns;
+
+        /** Cached hash of the columns. */
+        private final int hash;
+
+        /**
+         * Constructor for OrderKey.
+         * @param columns The candidate columns in preference order.
+         */
+        OrderKey(int[] columns) {
+            this.columns = columns;
+            this.hash = Arrays.hashCode(columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof OrderKey && Arrays.equals(columns, ((OrderKey) other).columns);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * Wall time, CPU time, allocated bytes and ballot throughput of each phase of an election run,
+ * such as loading the ballots, tabulating, deciding the winners and writing the audit. CPU time
+ * and allocations are read from the ThreadMXBean of the thread running the phase. Work the phase
+ * hands to other threads, such as reading each file or tallying in parallel, is measured on
+ * each worker thread while it runs a task of the phase, through the phase's WorkerUsage, and
+ * added in. Only the tasks are measured, so pool threads shared with other elections are not
+ * charged for their work. The phases are written as a CSV file next to the audit file, one row
+ * per phase.
+ *
+ * @author Zach Larsen
+ */
+public class PhaseMetrics {
+
+    /** Thread bean that CPU time and allocations are read from. */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /** Header row of the metrics file. */
+    public static final String HEADER = "election,phase,wall_ns,cpu_ns,allocated_bytes,ballots,ballots_per_second";
+
+    /**
+     * Measurements of one phase.
+     */
+    public static class Phase {
+
+        /** Name of the phase. */
+        private final String name;
+
+        /** Wall time of the phase in nanoseconds. */
+        private final long wallNanos;
+
+        /** CPU time of the phase in nanoseconds, or -1 if it could not be measured. */
+        private final long cpuNanos;
+
+        /** Bytes allocated during the phase, or -1 if they could not be measured. */
+        private final long allocatedBytes;
+
+        /** Number of ballots the phase processed. */
+        private final long ballots;
+
+        /**
+         * Constructor for Phase.
+         * @param name The name of the phase.
+         * @param wallNanos The wall time in nanoseconds.
+         * @param cpuNanos The CPU time in nanoseconds, or -1.
+         * @param allocatedBytes The bytes allocated, or -1.
+         * @param ballots The number of ballots processed.
+         */
+        Phase(String name, long wallNanos, long cpuNanos, long allocatedBytes, long ballots) {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.ballots = ballots;
+        }
+
+        /**
+         * Retrieves the name of the phase.
+         * @return The phase name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retrieves the wall time of the phase.
+         * @return The wall time in nanoseconds.
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * Retrieves the CPU time of the phase, on the thread that ran it and in its worker tasks.
+         * @return The CPU time in nanoseconds, or -1 if it could not be measured.
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * Retrieves the bytes allocated by the phase, on the thread that ran it and in its worker tasks.
+         * @return The bytes allocated, or -1 if they could not be measured.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Retrieves the number of ballots the phase processed.
+         * @return The number of ballots.
+         */
+        public long getBallots() {
+            return ballots;
+        }
+
+        /**
+         * Retrieves the ballot throughput of the phase.
+         * @return Ballots per second of wall time, or 0 if the phase processed no ballots.
+         */
+        public double getBallotsPerSecond() {
+            if (ballots == 0 || wallNanos == 0) {
+                return 0;
+            }
+            return ballots * 1e9 / wallNanos;
+        }
+    }
+
+    /**
+     * CPU time and allocations of the tasks a phase ran on other threads. Each task is measured
+     * on its own thread, from the thread's figures when the task starts and ends, and the totals
+     * are added up from any number of threads at once.
+     */
+    public static class WorkerUsage {
+
+        /** CPU time of the measured tasks in nanoseconds, or -1 if any could not be measured. */
+        private long cpuNanos = 0;
+
+        /** Bytes allocated by the measured tasks, or -1 if any could not be measured. */
+        private long allocatedBytes = 0;
+
+        /**
+         * Runs a task on the calling thread and adds the CPU time and allocations of the thread
+         * while it ran. Threads that do not report them, such as virtual threads, make the totals -1.
+         *
+         * @param task The task.
+         * @param <T> The type of the task's result.
+         * @return The task's result.
+         * @throws Exception If the task throws it.
+         */
+        public <T> T measure(Callable<T> task) throws Exception {
+            long startCpu = cpuTime();
+            long startAllocated = allocatedBytes();
+            try {
+                return task.call();
+            } finally {
+                long cpu = cpuTime();
+                long allocated = allocatedBytes();
+                add(cpu == -1 || startCpu == -1 ? -1 : cpu - startCpu,
+                        allocated == -1 || startAllocated == -1 ? -1 : allocated - startAllocated);
+            }
+        }
+
+        /**
+         * Adds CPU time and allocations measured elsewhere, such as the totals of another WorkerUsage.
+         *
+         * @param cpu The CPU time in nanoseconds, or -1 if it could not be measured.
+         * @param allocated The bytes allocated, or -1 if they could not be measured.
+         */
+        public synchronized void add(long cpu, long allocated) {
+            cpuNanos = cpu == -1 || cpuNanos == -1 ? -1 : cpuNanos + cpu;
+            allocatedBytes = allocated == -1 || allocatedBytes == -1 ? -1 : allocatedBytes + allocated;
+        }
+
+        /**
+         * Retrieves the CPU time of the measured tasks.
+         * @return The CPU time in nanoseconds, or -1 if it could not be measured.
+         */
+        public synchronized long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * Retrieves the bytes allocated by the measured tasks.
+         * @return The bytes allocated, or -1 if they could not be measured.
+         */
+        public synchronized long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    /** Finished phases, in the order they ran. */
+    private final ArrayList<Phase> phases = new ArrayList<>();
+
+    /** Name of the phase that is running, or null. */
+    private String current;
+
+    /** Wall clock when the running phase started. */
+    private long startWall;
+
+    /** CPU time when the running phase started, or -1. */
+    private long startCpu;
+
+    /** Allocated bytes when the running phase started, or -1. */
+    private long startAllocated;
+
+    /** Tasks the running phase ran on other threads. */
+    private WorkerUsage workers = new WorkerUsage();
+
+    /**
+     * Starts measuring a phase on the current thread. Phases do not nest, so starting
+     * a phase while another is running replaces it.
+     *
+     * @param name The name of the phase.
+     */
+    public void start(String name) {
+        current = name;
+        workers = new WorkerUsage();
+        startCpu = cpuTime();
+        startAllocated = allocatedBytes();
+        startWall = System.nanoTime();
+    }
+
+    /**
+     * Retrieves the usage that tasks of the running phase run on other threads are measured into.
+     * Its totals are added to the phase when it stops.
+     *
+     * @return The worker usage of the running phase.
+     */
+    public WorkerUsage getWorkerUsage() {
+        return workers;
+    }
+
+    /**
+     * Finishes measuring the running phase, which must have been started on the same thread.
+     *
+     * @param ballots The number of ballots the phase processed, 0 if it does not process ballots.
+     */
+    public void stop(long ballots) {
+        long wall = System.nanoTime() - startWall;
+        long cpu = cpuTime();
+        long allocated = allocatedBytes();
+        if (current == null) {
+            return;
+        }
+        long phaseCpu = cpu == -1 || startCpu == -1 || workers.getCpuNanos() == -1
+                ? -1 : cpu - startCpu + workers.getCpuNanos();
+        long phaseAllocated = allocated == -1 || startAllocated == -1 || workers.getAllocatedBytes() == -1
+                ? -1 : allocated - startAllocated + workers.getAllocatedBytes();
+        phases.add(new Phase(current,
+                wall,
+                phaseCpu,
+                phaseAllocated,
+                ballots));
+        current = null;
+    }
+
+    /**
+     * Retrieves the finished phases.
+     *
+     * @return The phases in the order they ran.
+     */
+    public ArrayList<Phase> getPhases() {
+        return phases;
+    }
+
+    /**
+     * Finds a finished phase by name.
+     *
+     * @param name The name of the phase.
+     * @return The first phase with that name, or null if there is none.
+     */
+    public Phase getPhase(String name) {
+        for (Phase phase : phases) {
+            if (phase.getName().equals(name)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Formats the phases as CSV rows under the header row.
+     *
+     * @param electionName The name of the election type, written on every row.
+     * @return The CSV text.
+     */
+    public String format(String electionName) {
+        StringBuilder text = new StringBuilder(HEADER).append('\n');
+        for (Phase phase : phases) {
+            text.append(electionName).append(',')
+                .append(phase.getName()).append(',')
+                .append(phase.getWallNanos()).append(',')
+                .append(phase.getCpuNanos()).append(',')
+                .append(phase.getAllocatedBytes()).append(',')
+                .append(phase.getBallots()).append(',')
+                .append(String.format(Locale.ROOT, "%.1f", phase.getBallotsPerSecond())).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the phases to a CSV file.
+     *
+     * @param filename The filename of the metrics file.
+     * @param electionName The name of the election type, written on every row.
+     * @throws IOException If the file can not be written.
+     */
+    public void write(String filename, String electionName) throws IOException {
+        try (AuditWriter writer = new AuditWriter(new File(filename))) {
+            writer.write(format(electionName));
+        }
+    }
+
+    /**
+     * Names the metrics file kept next to an audit file, which is the audit filename with
+     * its .txt extension replaced by .metrics.csv.
+     *
+     * @param auditFilename The filename of the audit file.
+     * @return The filename of the metrics file.
+     */
+    public static String metricsFileFor(String auditFilename) {
+        String base = auditFilename;
+        if (base.endsWith(".txt")) {
+            base = base.substring(0, base.length() - ".txt".length());
+        }
+        return base + ".metrics.csv";
+    }
+
+    /**
+     * Reads the CPU time of the current thread.
+     *
+     * @return The CPU time in nanoseconds, or -1 if it is not available.
+     */
+    private static long cpuTime() {
+        if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Reads the bytes allocated so far by the current thread.
+     *
+     * @return The allocated bytes, or -1 if they are not available.
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported()) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
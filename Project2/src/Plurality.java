@@ -1,6 +1,4 @@
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Creates and execute a Plurality election. This includes adding votes, determining the winners
@@ -33,44 +31,55 @@ public class Plurality extends DirectSelection{
 
 
     /**
-     * Calls all helper functions to run a Plurality election from start to finish.
+     * Constructor for Plurality class that tabulates ballots already held in a BallotStore.
+     * @param numSeats Number of seats available in the Election
+     * @param numCandidates Number of candidates running in the Election
+     * @param numBallots Number of ballots cast in the Election
+     * @param candidates List of all candidates running in the Election
+     * @param ballotStore Columnar store of all ballots cast in the Election
+     * @param fileName A String specifying the name of the audit file
+     */
+    public Plurality(int numSeats, int numCandidates, int numBallots, ArrayList<Candidate> candidates, BallotStore ballotStore, String fileName){
+        this.numSeats = numSeats;
+        this.numBallots = numBallots;
+        this.numCandidates = numCandidates;
+        this.candidates = candidates;
+        this.ballotStore = ballotStore;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Get the name of the election type.
+     * @return "Plurality"
      */
-    public void startElection(){
-        tabulateVotes();
-        determine_Winner_Loser();
-        displayResults("Plurality");
-        generateAudit("Plurality");
+    public String getElectionName(){
+        return "Plurality";
     }
 
 
+    /**
+     * Go through all cast ballots and give one vote to the candidate ranked 1 on each ballot.
+     * Large elections are counted in parallel when setParallelism has been given more than one thread.
+     */
     public void tabulateVotes(){
-        //Loop through all ballots in the list
-        for (Ballot ballot : ballots){
-            HashMap<Candidate, Integer> ranking = ballot.getRankings();
-            
-            Candidate personVotedFor = null;
-            //Loop through all candidate,int pairs in the HashMap stored in the ballot
-            for (Map.Entry<Candidate,Integer> entry : ranking.entrySet()){
-                Integer value = entry.getValue();
-                //If the value is 1 that means the candidate received the vote
-                if(value == 1){
-                    personVotedFor = entry.getKey();
-                    break;
-                }
-            }
+        tabulate(this::countFirstChoices);
+    }
 
-            //Assign a candidate a vote by incrementing the vote count and assign that ballot to them
-            if(personVotedFor != null){
-                personVotedFor.incrementVoteCount();
-                personVotedFor.addBallot(ballot);
+    /**
+     * Count the vote on each ballot in a range of rows for the candidate ranked 1.
+     * @param store the store holding the ballots
+     * @param start the first row to count
+     * @param end the row after the last row to count
+     * @param tally the tally the votes are counted into
+     */
+    private void countFirstChoices(BallotStore store, int start, int end, Tally tally){
+        for (int row = start; row < end; row++){
+            //The candidate ranked 1 on the ballot received the vote
+            int column = store.findRank(row, 1);
+            store.setOwner(row, column);
+            if(column != -1){
+                tally.award(column, row);
             }
         }
     }
-
-
-
-
-
-
-
 }
@@ -1,10 +1,9 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Random;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Map;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.Math;
 
@@ -25,6 +24,40 @@ public class STV extends Election {
     /** Used for testing. Disables randomization of ballots.  */
     private boolean shuffleOn = false;
 
+    /** Active candidates ordered by vote count, kept current by distributeVotes. */
+    private CandidateHeap candidateHeap;
+
+    /** Fixed-point scale of ballot weights and tallies when surpluses are transferred
+     * fractionally, giving five decimal places. */
+    public static final long WEIGHT_SCALE = 100_000;
+
+    /** Transfer elected candidates' surpluses at fractional weights (Gregory/WIGM)
+     * instead of electing the moment a candidate reaches the quota. */
+    private boolean fractionalSurplus = false;
+
+    /** Fixed-point weight of one ballot of each group in fractional surplus mode. Identical
+     * ballots always move together, so a group shares one weight. */
+    private long[] weights;
+
+    /** Fixed-point tally of each candidate column in fractional surplus mode. */
+    private long[] tallies;
+
+    /** Rank of the candidate holding each group in fractional surplus mode, 0 before it is first given out. */
+    private short[] heldRanks;
+
+    /** Column each group was last given to in fractional surplus mode, or -1 once it is exhausted. */
+    private int[] groupColumns;
+
+    /** Groups currently held by each candidate column in fractional surplus mode. */
+    private IntList[] heldGroups;
+
+    /** Rows currently held by each candidate column in fractional surplus mode, in the order
+     * they were given out. Only used to list each candidate's ballots in that order. */
+    private IntList[] heldRows;
+
+    /** Number of ballots given out so far in fractional surplus mode, used to order first votes. */
+    private int ballotCount;
+
 
     /**
      * Constructor for STV
@@ -46,6 +79,26 @@ public class STV extends Election {
         this.fileName = fileName;
     }
 
+    /**
+     * Constructor for STV that tabulates ballots already held in a BallotStore
+     * @param shuffle: toggle for shuffle on/off
+     * @param numSeats: number of seats to fill
+     * @param numCandidates: number of candidates
+     * @param numBallots: number of ballots
+     * @param candidates: list of candidate objects
+     * @param ballotStore: columnar store of all ballots
+     * @param fileName: name of the audit file to be created
+     */
+    public STV(boolean shuffle, int numSeats, int numCandidates, int numBallots, ArrayList<Candidate> candidates, BallotStore ballotStore, String fileName) {
+        shuffleOn = shuffle;
+        this.numSeats = numSeats;
+        this.numBallots = numBallots;
+        this.numCandidates = numCandidates;
+        this.candidates = candidates;
+        this.ballotStore = ballotStore;
+        this.fileName = fileName;
+    }
+
     /**
      * Calculates the droop quota for the STV election.
      *
@@ -77,10 +130,17 @@ public class STV extends Election {
     }
 
     /**
-     * Shuffles the list of ballots randomly.
+     * Shuffles the list of ballots randomly. When the ballots are held in a
+     * BallotStore, the rows of the store are shuffled instead.
      */
     public void shuffleBallots() {
         Random rand = new Random();
+        if (ballotStore != null) {
+            ballotStore.shuffle(rand);
+            // rows moved, so any groups built from them no longer match
+            ballotGroups = null;
+            return;
+        }
         int max = ballots.size() - 1;
         for (int i = 0; i < max; i++) {
             int randomInt = rand.nextInt(max - i + 1) + i;
@@ -88,6 +148,25 @@ public class STV extends Election {
         }
     }
 
+    /**
+     * Sets whether surpluses are transferred at fractional weights. In that mode the result
+     * does not depend on the order of the ballots, so they are not shuffled.
+     *
+     * @param fractional true to transfer surpluses fractionally, false to elect at the quota.
+     */
+    public void setFractionalSurplus(boolean fractional) {
+        fractionalSurplus = fractional;
+    }
+
+    /**
+     * Checks if surpluses are transferred at fractional weights.
+     *
+     * @return true in fractional surplus mode, false otherwise.
+     */
+    public boolean isFractionalSurplus() {
+        return fractionalSurplus;
+    }
+
     /**
      * Removes the specified ballot from the list of ballots.
      *
@@ -106,26 +185,69 @@ public class STV extends Election {
         if (numSeats >= numCandidates) {
             for (Candidate candidate : candidates) {
                 addWinner(candidate);
-                candidate.setStatus("eliminated");
+                setStatus(candidate, "eliminated");
             }
         }
+        if (fractionalSurplus) {
+            distributeFractionalVotes();
+            return;
+        }
+        BallotStore store = getBallotStore();
+        BitSet active = getActiveCandidates();
+
+        // rows of the ballots waiting to be given to a candidate, in the order they are tabulated.
+        // Rows are read at a cursor instead of being removed, so each round is linear in its ballots
+        IntList pending = new IntList(store.size());
+        for (int row = 0; row < store.size(); row++) {
+            pending.add(row);
+        }
+        int nextPending = 0;
+
+        // rows given to each candidate column, in the order they were given
+        IntList[] columnRows = new IntList[store.getNumColumns()];
+        for (int column = 0; column < columnRows.length; column++) {
+            columnRows[column] = new IntList();
+        }
+
+        // columns whose vote count changed since the active candidate heap was last updated
+        boolean[] changedColumns = new boolean[store.getNumColumns()];
+        IntList changed = new IntList();
+        candidateHeap = new CandidateHeap(candidates);
+
+        // each ballot's own preference cursor: the rank of the candidate now holding it, 0 before it is first given out.
+        // A transferred ballot continues from its next preference, so only the transferred ballots are revisited
+        short[] heldRanks = new short[store.size()];
+
         int ballotCount = 0;
-        int currRank = 1;
+        int round = 1;
         while (winners.size() < numSeats) {
+            ElectionEvents.Round event = new ElectionEvents.Round();
+            event.begin();
+            int roundWinners = winners.size();
+            int transferred = pending.size() - nextPending;
             boolean winnerAdded = false;
-            while (ballots.size() != 0) {
-                Ballot ballot = ballots.getFirst();
-
-                // get ballot's candidate and check if it's active, eliminate ballot if no next candidate
-                Candidate currCandidate = checkBallotCandidate(ballot, currRank);
-                // if ballot isn't removed, get that ballot's vote and apply it to their candidate
-                if (currCandidate != null) {
-                    currCandidate.addBallot(ballot);
+            while (nextPending < pending.size()) {
+                int row = pending.get(nextPending);
+                nextPending++;
+
+                // get ballot's next active candidate after the one it was last given to, ballot is exhausted if none
+                int column = checkRowCandidate(store, row, heldRanks[row] + 1);
+                store.setOwner(row, column);
+                // if ballot isn't exhausted, get that ballot's vote and apply it to their candidate
+                if (column != -1) {
+                    int currRank = store.getRank(row, column);
+                    heldRanks[row] = (short) currRank;
+                    Candidate currCandidate = store.getCandidate(column);
+                    currCandidate.addBallotID(store.getBallotID(row));
                     currCandidate.incrementVoteCount();
-                    removeBallot(ballot);
+                    columnRows[column].add(row);
+                    if (!changedColumns[column]) {
+                        changedColumns[column] = true;
+                        changed.add(column);
+                    }
                     if (currCandidate.getVoteCount() == droopQuota && winners.size() < numSeats) {
                         addWinner(currCandidate);
-                        currCandidate.setStatus("eliminated");
+                        setStatus(currCandidate, "eliminated");
                         winnerAdded = true;
                     }
                     if (currCandidate.getVoteCount() == 1) {
@@ -138,46 +260,290 @@ public class STV extends Election {
                 }
                 ballotCount++;
             }
+            // every pending ballot has been tabulated, start the next round with an empty queue
+            pending.clear();
+            nextPending = 0;
+
             // if no winners this round, then eliminate a candidate
+            Candidate eliminatedCandidate = null;
             if (winnerAdded == false && winners.size() < numSeats) {
-                Candidate eliminatedCandidate = eliminateCandidate();
+                for (int i = 0; i < changed.size(); i++) {
+                    candidateHeap.update(store.getCandidate(changed.get(i)));
+                    changedColumns[changed.get(i)] = false;
+                }
+                changed.clear();
+                eliminatedCandidate = eliminateLowest();
+
+                // add eliminated candidate's ballots back to be transferred to their next preference
+                int eliminatedColumn = store.getColumn(eliminatedCandidate);
+                if (eliminatedColumn != -1) {
+                    IntList eliminatedRows = columnRows[eliminatedColumn];
+                    for (int i = 0; i < eliminatedRows.size(); i++) {
+                        pending.add(eliminatedRows.get(i));
+                    }
+                }
+            }
+            commitRound(event, "STV", round, roundWinners, eliminatedCandidate, transferred);
+            round++;
+        }
+        // add any remaining candidates to losers list
+        for (int i = active.nextSetBit(0); i != -1; i = active.nextSetBit(i + 1)) {
+            Candidate candidate = candidates.get(i);
+            addLoser(candidate);
+            setStatus(candidate, "eliminated");
+        }
+        return;
+    }
 
-                // add eliminated candidate's ballots back to be re-tabulated
-                boolean addedBallots = false;
-                for (Ballot ballot : eliminatedCandidate.getBallots()) {
-                    addedBallots = true;
-                    ballots.add(ballot);
+    /**
+     * Distributes votes with fractional surplus transfers (the weighted inclusive Gregory method).
+     * Every ballot starts with a weight of one. Once all ballots are counted, each candidate at or
+     * above the quota is elected, and all ballots they hold move on to their next preference at
+     * weight * surplus / tally, so the candidate keeps exactly the quota. When there is no surplus
+     * to transfer the lowest candidate is eliminated and their ballots move on at their current
+     * weight. Weights and tallies are longs in units of 1/WEIGHT_SCALE, rounded down. Identical
+     * ballots always share a weight and a next preference, so each group of them is counted once.
+     */
+    private void distributeFractionalVotes() {
+        BallotStore store = getBallotStore();
+        BitSet active = getActiveCandidates();
+        int numColumns = store.getNumColumns();
+        long quota = droopQuota * WEIGHT_SCALE;
+
+        BallotGroups groups = getBallotGroups();
+        weights = new long[groups.size()];
+        Arrays.fill(weights, WEIGHT_SCALE);
+        tallies = new long[numColumns];
+        heldRanks = new short[groups.size()];
+        groupColumns = new int[groups.size()];
+        heldGroups = new IntList[numColumns];
+        heldRows = new IntList[numColumns];
+        for (int column = 0; column < numColumns; column++) {
+            heldGroups[column] = new IntList();
+            heldRows[column] = new IntList();
+        }
+        ballotCount = 0;
+
+        IntList allGroups = new IntList(groups.size());
+        for (int group = 0; group < groups.size(); group++) {
+            allGroups.add(group);
+        }
+        IntList rows = new IntList(store.size());
+        for (int row = 0; row < store.size(); row++) {
+            rows.add(row);
+        }
+        // the first round hands out every ballot to its first preference
+        ElectionEvents.Round event = new ElectionEvents.Round();
+        event.begin();
+        int handedOut = store.size();
+        int round = 1;
+        assignGroups(groups, allGroups, rows);
+        candidateHeap = new CandidateHeap(candidates);
+
+        // elected candidates whose surplus has not been transferred yet, in the order they were elected
+        IntList surpluses = new IntList();
+        int nextSurplus = 0;
+        while (winners.size() < numSeats) {
+            int roundWinners = winners.size();
+            for (int column = active.nextSetBit(0); column != -1; column = active.nextSetBit(column + 1)) {
+                candidateHeap.update(store.getCandidate(column), tallies[column]);
+            }
+
+            // elect everyone who reached the quota, highest tally first
+            for (int column : columnsByTally(active)) {
+                if (tallies[column] >= quota && winners.size() < numSeats) {
+                    elect(store, column);
+                    if (tallies[column] > quota) {
+                        surpluses.add(column);
+                    }
                 }
+            }
+            if (winners.size() >= numSeats) {
+                commitRound(event, "WIGM", round, roundWinners, null, handedOut);
+                break;
+            }
 
-                // if ballots are added back, increment current rank (rank looked at for each ballot)
-                if (addedBallots) {
-                    currRank++;
+            // once the remaining candidates can only fill the remaining seats, they are all elected
+            if (active.cardinality() <= numSeats - winners.size()) {
+                for (int column : columnsByTally(active)) {
+                    elect(store, column);
                 }
+                commitRound(event, "WIGM", round, roundWinners, null, handedOut);
+                break;
             }
+
+            Candidate eliminatedCandidate = null;
+            if (nextSurplus < surpluses.size()) {
+                // every ballot the candidate holds moves on, carrying its share of the surplus
+                int column = surpluses.get(nextSurplus);
+                nextSurplus++;
+                long surplus = tallies[column] - quota;
+                long factor = surplus * WEIGHT_SCALE / tallies[column];
+                IntList transferred = heldGroups[column];
+                for (int i = 0; i < transferred.size(); i++) {
+                    int group = transferred.get(i);
+                    weights[group] = weights[group] * factor / WEIGHT_SCALE;
+                }
+                tallies[column] = quota;
+                handedOut += transferColumn(groups, column);
+            }
+            else {
+                eliminatedCandidate = eliminateLowest();
+                handedOut += transferColumn(groups, store.getColumn(eliminatedCandidate));
+            }
+            commitRound(event, "WIGM", round, roundWinners, eliminatedCandidate, handedOut);
+
+            round++;
+            event = new ElectionEvents.Round();
+            event.begin();
+            handedOut = 0;
         }
+
         // add any remaining candidates to losers list
-        for (Candidate candidate : candidates) {
-            if (candidate.getStatus() == "active") {
-                addLoser(candidate);
-                candidate.setStatus("eliminated");
+        for (int column = active.nextSetBit(0); column != -1; column = active.nextSetBit(column + 1)) {
+            Candidate candidate = store.getCandidate(column);
+            addLoser(candidate);
+            setStatus(candidate, "eliminated");
+        }
+        // vote counts shown in the results are the tallies rounded down to whole votes
+        for (int column = 0; column < numColumns; column++) {
+            store.getCandidate(column).setVoteCount((int) (tallies[column] / WEIGHT_SCALE));
+        }
+    }
+
+    /**
+     * Moves every group and row held by a candidate on to their next active preference
+     * in fractional surplus mode.
+     *
+     * @param groups The ballots grouped by identical rankings.
+     * @param column The column of the candidate whose ballots move on.
+     * @return The number of ballots that moved on.
+     */
+    private int transferColumn(BallotGroups groups, int column) {
+        IntList transferredGroups = heldGroups[column];
+        IntList transferredRows = heldRows[column];
+        heldGroups[column] = new IntList();
+        heldRows[column] = new IntList();
+        assignGroups(groups, transferredGroups, transferredRows);
+        return transferredRows.size();
+    }
+
+    /**
+     * Gives each group to its next active preference in fractional surplus mode, adding the
+     * group's weight once for every ballot in it to that candidate's tally. Groups with no active
+     * preference left are exhausted. The rows of the groups are then handed out in the given
+     * order, so each candidate's ballots are listed in the order they were received.
+     *
+     * @param groups      The ballots grouped by identical rankings.
+     * @param transferred The groups to give out.
+     * @param rows        Every row of those groups, in the order they are given out.
+     */
+    private void assignGroups(BallotGroups groups, IntList transferred, IntList rows) {
+        BallotStore store = groups.getStore();
+        for (int i = 0; i < transferred.size(); i++) {
+            int group = transferred.get(i);
+            int representative = groups.getRepresentative(group);
+            int column = checkRowCandidate(store, representative, heldRanks[group] + 1);
+            groupColumns[group] = column;
+            if (column != -1) {
+                heldRanks[group] = (short) store.getRank(representative, column);
+                tallies[column] += weights[group] * groups.getCount(group);
+                heldGroups[column].add(group);
             }
         }
-        return;
+
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            int group = groups.getGroup(row);
+            int column = groupColumns[group];
+            store.setOwner(row, column);
+            if (column != -1) {
+                heldRows[column].add(row);
+                Candidate candidate = store.getCandidate(column);
+                candidate.addBallotID(store.getBallotID(row));
+                if (!candidateFirstVote.containsKey(candidate)) {
+                    // record candidate's first vote and that vote's rank
+                    ArrayList<Integer> candidateVoteIndexRank = new ArrayList<Integer>();
+                    candidateVoteIndexRank.add((int) heldRanks[group]);
+                    candidateVoteIndexRank.add(ballotCount);
+                    candidateFirstVote.put(candidate, candidateVoteIndexRank);
+                }
+            }
+            ballotCount++;
+        }
+    }
+
+    /**
+     * Elects the candidate of a column in fractional surplus mode.
+     *
+     * @param store  The store holding the ballots.
+     * @param column The column of the candidate.
+     */
+    private void elect(BallotStore store, int column) {
+        Candidate candidate = store.getCandidate(column);
+        addWinner(candidate);
+        setStatus(candidate, "eliminated");
+        candidateHeap.update(candidate);
     }
 
     /**
-     * Eliminates candidate with least number of votes.
+     * Lists the active columns from the highest tally to the lowest, in column order for equal tallies.
+     *
+     * @param active The mask of active columns.
+     * @return The active columns.
+     */
+    private int[] columnsByTally(BitSet active) {
+        Integer[] order = new Integer[active.cardinality()];
+        int next = 0;
+        for (int column = active.nextSetBit(0); column != -1; column = active.nextSetBit(column + 1)) {
+            order[next] = column;
+            next++;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(tallies[b], tallies[a]));
+        int[] columns = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            columns[i] = order[i];
+        }
+        return columns;
+    }
+
+    /**
+     * Records a finished round of the count as a flight recorder event.
+     *
+     * @param event        The round's event, begun when the round started.
+     * @param method       The counting method.
+     * @param round        The round number.
+     * @param roundWinners The number of winners before the round.
+     * @param eliminated   The candidate eliminated in the round, or null.
+     * @param transferred  The number of ballots handed to a candidate in the round.
+     */
+    private void commitRound(ElectionEvents.Round event, String method, int round, int roundWinners, Candidate eliminated, int transferred) {
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.round = round;
+            event.elected = ElectionEvents.namesSince(winners, roundWinners);
+            event.eliminated = eliminated == null ? "" : eliminated.getName();
+            event.ballotsTransferred = transferred;
+            event.commit();
+        }
+    }
+
+    /**
+     * Eliminates candidate with least number of votes, read from the candidates' current
+     * vote counts, so counts set since the last call are always taken into account.
      *
      * @return The candidate to be eliminated.
      */
     public Candidate eliminateCandidate() {
-        Candidate eliminatedCandidate;
         ArrayList<Candidate> eliminatedCandidates = new ArrayList<Candidate>();
         int minVoteCount = Integer.MAX_VALUE;
 
-        // find candidate(s) with least number of votes and add them to array
+        // find active candidate(s) with least number of votes
         for (Candidate candidate : candidates) {
-            if (candidate.getVoteCount() < minVoteCount && candidate.getStatus() == "active") {
+            if (!candidate.isActive()) {
+                continue;
+            }
+            if (candidate.getVoteCount() < minVoteCount) {
                 minVoteCount = candidate.getVoteCount();
                 eliminatedCandidates.clear();
             }
@@ -185,6 +551,29 @@ public class STV extends Election {
                 eliminatedCandidates.add(candidate);
             }
         }
+        return eliminate(eliminatedCandidates);
+    }
+
+    /**
+     * Eliminates the active candidate with the fewest votes during distributeVotes. The lowest
+     * candidates are found through the heap keyed on vote count, which distributeVotes keeps
+     * current, so ties are found without scanning every candidate.
+     *
+     * @return The candidate to be eliminated.
+     */
+    private Candidate eliminateLowest() {
+        return eliminate(candidateHeap.getLowest());
+    }
+
+    /**
+     * Eliminates one of the candidates tied for the fewest votes, settling the tie if there is
+     * more than one, and removes it from the heap if distributeVotes is keeping one.
+     *
+     * @param eliminatedCandidates The active candidates with the fewest votes.
+     * @return The candidate to be eliminated.
+     */
+    private Candidate eliminate(ArrayList<Candidate> eliminatedCandidates) {
+        Candidate eliminatedCandidate;
         // settle ties if more than 1 candidate has same least number of votes
         if (eliminatedCandidates.size() > 1) {
             eliminatedCandidate = settleTies(eliminatedCandidates);
@@ -193,13 +582,16 @@ public class STV extends Election {
             eliminatedCandidate = eliminatedCandidates.getFirst();
         }
         addLoser(eliminatedCandidate);
-        eliminatedCandidate.setStatus("eliminated");
+        setStatus(eliminatedCandidate, "eliminated");
+        if (candidateHeap != null) {
+            candidateHeap.update(eliminatedCandidate);
+        }
 
         return eliminatedCandidate;
     }
 
     /**
-     * Retrieves ballot's highest ranked active candidate or eliminates ballot if no such candidate.
+     * Retrieves ballot's highest ranked active candidate. The ballot is left in the list of ballots.
      *
      * @param ballot The ballot whose ranked candidates are being checked.
      * @param rank   The rank to be checked.
@@ -209,7 +601,7 @@ public class STV extends Election {
         Candidate nextCandidate = null;
         Candidate currCandidate = getRankCandidate(ballot, rank);
         while (currCandidate != null) {
-            if (currCandidate.getStatus() == "active") {
+            if (currCandidate.isActive()) {
                 nextCandidate = currCandidate;
                 break;
             }
@@ -218,11 +610,32 @@ public class STV extends Election {
                 currCandidate = getRankCandidate(ballot, rank);
             }
         }
-        // if no active candidates left on ballot, eliminate that ballot
-        removeBallot(ballot);
         return nextCandidate;
     }
 
+    /**
+     * Retrieves the column of a stored ballot's highest ranked active candidate.
+     *
+     * @param store The store holding the ballot.
+     * @param row   The row of the ballot whose ranked candidates are being checked.
+     * @param rank  The rank to be checked.
+     * @return The column of the active candidate at the highest possible rank or -1 if no such candidate.
+     */
+    public int checkRowCandidate(BallotStore store, int row, int rank) {
+        // the rank-ordered index makes moving on to the next preference a single lookup,
+        // and whether that candidate is still active is a single bit test
+        BitSet active = getActiveCandidates();
+        int column = store.getRankColumn(row, rank);
+        while (column != -1) {
+            if (active.get(column)) {
+                return column;
+            }
+            rank++;
+            column = store.getRankColumn(row, rank);
+        }
+        return -1;
+    }
+
     /**
      * Retrieves the candidate ranked at the given rank for the specified ballot.
      *
@@ -231,17 +644,7 @@ public class STV extends Election {
      * @return The candidate at the specified rank.
      */
     public Candidate getRankCandidate(Ballot ballot, int rank) {
-        HashMap<Candidate, Integer> ranking = ballot.getRankings();
-            
-        Candidate currCandidate = null;
-        for (Map.Entry<Candidate,Integer> entry : ranking.entrySet()){
-            int value = entry.getValue();
-            if (value == rank){
-                currCandidate = entry.getKey();
-                break;
-            }
-        }
-        return currCandidate;
+        return ballot.getRankCandidate(rank);
     }
 
     /**
@@ -259,8 +662,9 @@ public class STV extends Election {
         Candidate tieLoser = null;
         for (Candidate candidate : tiedCandidates) {
             ArrayList<Integer> voteIndexRank = candidateFirstVote.get(candidate);
-            int currRank = voteIndexRank.get(0);
-            int currIndex = voteIndexRank.get(1);
+            // a candidate who never got a vote is treated as getting theirs after everyone else
+            int currRank = voteIndexRank == null ? Integer.MAX_VALUE : voteIndexRank.get(0);
+            int currIndex = voteIndexRank == null ? Integer.MAX_VALUE : voteIndexRank.get(1);
             if (currRank > maxRank) {
                 maxRank = currRank;
                 maxIndex = currIndex;
@@ -275,127 +679,92 @@ public class STV extends Election {
     }
 
     /**
-     * Displays the election results, including the election type, number of ballots,
+     * Formats the election results, including the election type, number of ballots,
      * seats to be filled, number of candidates, winners, and losers (if any).
      *
-     * For each winner and loser, their name and vote percentage relative to the total
-     * number of ballots are displayed. Winners and losers are listed in the order they
-     * appear in their respective lists.
+     * Winners and losers are listed by name in the order they appear in their respective lists.
      *
      * @param electionName The name or type of the election to be displayed.
+     * @return The results text.
      */
-    public void displayResults(String electionName){
-        System.out.printf("Election Type: %s\n", electionName);
-        System.out.printf("Number of Ballots: %d\n", numBallots);
-        System.out.printf("Seats to be Filled: %d\n", numSeats);
-        System.out.printf("Number of Candidates: %d\n", numCandidates);
-
-        System.out.print("Winners:");
+    public String formatResults(String electionName){
+        StringBuilder results = new StringBuilder();
+        results.append(String.format("Election Type: %s\n", electionName));
+        results.append(String.format("Number of Ballots: %d\n", numBallots));
+        results.append(String.format("Seats to be Filled: %d\n", numSeats));
+        results.append(String.format("Number of Candidates: %d\n", numCandidates));
+
+        results.append("Winners:");
         for (int i=0; i < winners.size(); i++){
             if(i == winners.size() - 1){
-                System.out.printf(" %s\n", winners.get(i).getName());
+                results.append(String.format(" %s\n", winners.get(i).getName()));
             } else{
-                System.out.printf(" %s,", winners.get(i).getName());
-            }  
+                results.append(String.format(" %s,", winners.get(i).getName()));
+            }
         }
 
         // If there are no losers skip this output
         if(!losers.isEmpty()) {
-            System.out.print("Losers:");
+            results.append("Losers:");
             for (int i = 0; i < losers.size(); i++) {
                 if (i == losers.size() - 1) {
-                    System.out.printf(" %s\n", losers.get(i).getName());
+                    results.append(String.format(" %s\n", losers.get(i).getName()));
                 } else {
-                    System.out.printf(" %s,", losers.get(i).getName());
+                    results.append(String.format(" %s,", losers.get(i).getName()));
                 }
             }
         }
+        return results.toString();
     }
 
     /**
-     * Generates an audit file containing detailed election results, including winners and losers,
-     * their vote percentages, and the order of ballots cast for each candidate.
-     *
-     * If the file already exists, the method prints an error message and terminates the program.
-     * If an I/O error occurs during file creation or writing, an error message is printed and the program exits.
+     * Writes the audit of the election, including winners and losers and the order
+     * of ballots cast for each candidate.
      *
+     * @param writer The writer of the audit.
      * @param electionName The name or type of the election to be recorded in the audit file.
-     * @return A file pointer to the newly created audit file
+     * @throws IOException If the audit can not be written.
      */
-    public File generateAudit(String electionName){
-        File auditFile = new File(fileName);
-
-        try{
-            if(!auditFile.createNewFile()){
-                System.err.println("File already exists\n Choose a different name for the audit file.");
-                System.exit(-1);
-
-            }
-        } catch (IOException error){
-            System.err.printf("An error occurred: %s\n", error);
-            System.exit(-1);
+    public void writeAudit(AuditWriter writer, String electionName) throws IOException{
+        writer.write(String.format("Election Type: %s\n", electionName));
+        writer.write(String.format("Number of Ballots: %d\n", numBallots));
+        writer.write(String.format("Seats to be Filled: %d\n", numSeats));
+        writer.write(String.format("Number of Candidates: %d\n", numCandidates));
+
+        for (Candidate winner : winners) {
+            writer.write(String.format("Winner: %s\n", winner.getName()));
+            writer.writeBallotOrder(winner.getName(), winner.getBallotIDs());
         }
 
-        try{
-            FileWriter writer = new FileWriter(auditFile);
-            writer.write(String.format("Election Type: %s\n", electionName));
-            writer.write(String.format("Number of Ballots: %d\n", numBallots));
-            writer.write(String.format("Seats to be Filled: %d\n", numSeats));
-            writer.write(String.format("Number of Candidates: %d\n", numCandidates));
-
-            for (Candidate winner : winners) {
-                writer.write(String.format("Winner: %s\n", winner.getName()));
-
-                ArrayList<Ballot> ballots = winner.getBallots();
-                for(int i = 0; i < ballots.size(); i++){
-                    if(ballots.size() == 1){
-                        writer.write(String.format("Order of ballots cast for %s: %d\n", winner.getName(), ballots.getFirst().getBallotID()));
-                    } else if(i == 0){
-                        writer.write(String.format("Order of ballots cast for %s: %d, ", winner.getName(), ballots.getFirst().getBallotID()));
-                    } else if (i == ballots.size() - 1) {
-                        writer.write(String.format("%d\n", ballots.get(i).getBallotID()));
-                    } else{
-                        writer.write(String.format("%d, ", ballots.get(i).getBallotID()));
-                    }
-                }
-            }
-
-            for (Candidate loser : losers) {
-                writer.write(String.format("Loser: %s\n", loser.getName()));
-
-                ArrayList<Ballot> ballots = loser.getBallots();
-                for(int i = 0; i < ballots.size(); i++){
-                    if(ballots.size() == 1){
-                        writer.write(String.format("Order of ballots cast for %s: %d\n", loser.getName(), ballots.getFirst().getBallotID()));
-                    } else if(i == 0){
-                        writer.write(String.format("Order of ballots cast for %s: %d, ", loser.getName(), ballots.getFirst().getBallotID()));
-                    } else if (i == ballots.size() - 1) {
-                        writer.write(String.format("%d\n", ballots.get(i).getBallotID()));
-                    } else{
-                        writer.write(String.format("%d, ", ballots.get(i).getBallotID()));
-                    }
-                }
-            }
-            writer.close();
-        } catch(IOException error){
-            System.err.printf("An error occurred: %s\n", error);
-            System.exit(-1);
+        for (Candidate loser : losers) {
+            writer.write(String.format("Loser: %s\n", loser.getName()));
+            writer.writeBallotOrder(loser.getName(), loser.getBallotIDs());
         }
-
-        return auditFile;
     }
 
     /**
-     * Calls all helper functions to run a STV election from start to finish.
+     * Counts the STV election: shuffles the ballots when shuffling is on, calculates
+     * the droop quota and distributes the votes, recording each step in the election's metrics.
      */
-    public void startElection() {
-        if (shuffleOn) {
+    public void countElection() {
+        if (shuffleOn && !fractionalSurplus) {
+            metrics.start("shuffle");
             shuffleBallots();
+            metrics.stop(numBallots);
         }
         int droop = calculateDroop(numBallots, numSeats);
         setDroopQuota(droop);
+        metrics.start("distribute");
         distributeVotes();
-        displayResults("STV");
-        generateAudit("STV");
+        metrics.stop(numBallots);
+    }
+
+    /**
+     * Retrieves the name of the election type.
+     *
+     * @return "STV"
+     */
+    public String getElectionName() {
+        return "STV";
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Votes of a Plurality or MV election counted while the ballots are parsed. Holds a vote
+ * count for each candidate column and the IDs of the ballots awarded to each column in a
+ * BallotIDLog, which spills to disk, so the memory used does not grow with the number of
+ * ballots. Each election file is counted into its own StreamedTally on its own thread, and
+ * the tallies are merged in file order.
+ *
+ * @author Zach Larsen
+ */
+public class StreamedTally implements BallotLoader.BallotCounter {
+
+    /** Whether every candidate marked 1 gets a vote (MV), or only the first one (Plurality). */
+    private final boolean everyMark;
+
+    /** Number of votes awarded to each candidate column. */
+    private final int[] counts;
+
+    /** IDs of the ballots awarded to each candidate column. */
+    private final BallotIDLog ballotIDs;
+
+    /** Number of ballots counted. */
+    private int numBallots = 0;
+
+    /**
+     * Constructs an empty tally.
+     *
+     * @param numColumns The number of candidate columns.
+     * @param everyMark true to give a vote to every candidate marked 1, false for only the first.
+     * @param chunkSize The number of IDs buffered per column before they are spilled to disk.
+     */
+    public StreamedTally(int numColumns, boolean everyMark, int chunkSize) {
+        this.everyMark = everyMark;
+        counts = new int[numColumns];
+        ballotIDs = new BallotIDLog(numColumns, chunkSize);
+    }
+
+    /**
+     * Counts one ballot, giving a vote to the first candidate marked 1, or to every
+     * candidate marked 1 when every mark counts.
+     *
+     * @param ballotID The ID of the ballot.
+     * @param ranks The rankings of the ballot in column order.
+     * @throws IOException If the ballot IDs can not be spilled.
+     */
+    public void count(int ballotID, int[] ranks) throws IOException {
+        numBallots++;
+        for (int column = 0; column < ranks.length; column++) {
+            if (ranks[column] == 1) {
+                counts[column]++;
+                ballotIDs.add(column, ballotID);
+                if (!everyMark) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of votes awarded to a column.
+     *
+     * @param column The candidate column.
+     * @return The number of votes.
+     */
+    public int getCount(int column) {
+        return counts[column];
+    }
+
+    /**
+     * Retrieves the IDs of the ballots awarded to each column.
+     *
+     * @return The ballot ID log.
+     */
+    public BallotIDLog getBallotIDs() {
+        return ballotIDs;
+    }
+
+    /**
+     * Retrieves the number of ballots counted.
+     *
+     * @return The number of ballots.
+     */
+    public int getNumBallots() {
+        return numBallots;
+    }
+
+    /**
+     * Reads every election file of a streaming loader, counting each file into its own tally
+     * on its own thread, then merges the tallies in file order so ballot IDs continue from one
+     * file to the next just as when the ballots are loaded. The tabulation is recorded as a
+     * flight recorder event.
+     *
+     * @param loader A BallotLoader in streaming mode that has read the headers.
+     * @param electionName The name of the election type, for the flight recorder event.
+     * @param numColumns The number of candidate columns.
+     * @param everyMark true to give a vote to every candidate marked 1, false for only the first.
+     * @param chunkSize The number of IDs buffered per column before they are spilled to disk.
+     * @return The merged tally.
+     * @throws IllegalArgumentException If an election file can not be read or holds an invalid ballot.
+     */
+    public static StreamedTally count(BallotLoader loader, String electionName, int numColumns, boolean everyMark, int chunkSize) {
+        ElectionEvents.Tabulate event = new ElectionEvents.Tabulate();
+        event.begin();
+        ArrayList<StreamedTally> files = loader.stream(() -> new StreamedTally(numColumns, everyMark, chunkSize));
+        if (files == null) {
+            throw new IllegalArgumentException(loader.getError());
+        }
+
+        // the later files' logs are appended whole, their IDs shifted past the ballots before them
+        StreamedTally merged = files.getFirst();
+        for (StreamedTally file : files.subList(1, files.size())) {
+            for (int column = 0; column < numColumns; column++) {
+                merged.counts[column] += file.counts[column];
+            }
+            merged.ballotIDs.append(file.ballotIDs, merged.numBallots);
+            merged.numBallots += file.numBallots;
+        }
+
+        if (event.shouldCommit()) {
+            event.election = electionName;
+            event.ballots = merged.numBallots;
+            event.candidates = numColumns;
+            event.threads = files.size();
+            event.commit();
+        }
+        return merged;
+    }
+}
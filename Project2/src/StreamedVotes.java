@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The votes of a Plurality or MV election that is counted while its election files are parsed,
+ * shared by StreamingPlurality and StreamingMV. Tabulating reads every file through the loader
+ * into a StreamedTally, adds the vote counts to the candidates and keeps each candidate's
+ * ballot IDs in a BallotIDLog, which the audit reads back chunk by chunk and then deletes.
+ *
+ * @author Zach Larsen
+ */
+public class StreamedVotes {
+
+    /** Loader that has read the headers of the election files and streams their ballots. */
+    private final BallotLoader loader;
+
+    /** Whether every candidate marked 1 gets a vote (MV), or only the first one (Plurality). */
+    private final boolean everyMark;
+
+    /** Column of each candidate in the election files. */
+    private final HashMap<Candidate, Integer> columns = new HashMap<>();
+
+    /** Number of ballot IDs buffered per candidate before they are spilled to disk. */
+    private int chunkSize = BallotIDLog.DEFAULT_CHUNK_SIZE;
+
+    /** IDs of the ballots cast for each candidate column, in the order they were cast, or null before the votes are tabulated. */
+    private BallotIDLog ballotIDs;
+
+    /**
+     * Constructs the votes of an election that have not been tabulated yet.
+     *
+     * @param loader A BallotLoader in streaming mode that has read the headers of the election files.
+     * @param everyMark true to give a vote to every candidate marked 1, false for only the first.
+     */
+    public StreamedVotes(BallotLoader loader, boolean everyMark) {
+        this.loader = loader;
+        this.everyMark = everyMark;
+    }
+
+    /**
+     * Sets the number of ballot IDs buffered per candidate before they are spilled to disk.
+     *
+     * @param chunkSize The number of IDs, at least 1.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads every election file and adds the votes of each candidate column to the candidate.
+     * The files are read in parallel and their counts are merged in file order, so ballot IDs
+     * continue from one file to the next just as when the ballots are loaded.
+     *
+     * @param candidates The candidates, in column order.
+     * @param electionName The name of the election type, for the flight recorder event.
+     * @param workerUsage Where the CPU time and allocations of reading the files are added.
+     * @throws IllegalArgumentException If an election file can not be read or holds an invalid ballot.
+     */
+    public void tabulate(ArrayList<Candidate> candidates, String electionName, PhaseMetrics.WorkerUsage workerUsage) {
+        loader.setWorkerUsage(workerUsage);
+        StreamedTally tally = StreamedTally.count(loader, electionName, candidates.size(), everyMark, chunkSize);
+        for (int column = 0; column < candidates.size(); column++) {
+            Candidate candidate = candidates.get(column);
+            candidate.setVoteCount(candidate.getVoteCount() + tally.getCount(column));
+            columns.put(candidate, column);
+        }
+        ballotIDs = tally.getBallotIDs();
+    }
+
+    /**
+     * Retrieves the IDs of the ballots cast for a candidate, copied into memory.
+     *
+     * @param candidate A candidate running in the election.
+     * @return The ballot IDs in the order they were cast, empty before the votes are tabulated.
+     */
+    public IntList getBallotIDs(Candidate candidate) {
+        Integer column = columns.get(candidate);
+        if (column == null) {
+            return new IntList();
+        }
+        return ballotIDs.toIntList(column);
+    }
+
+    /**
+     * Retrieves the log of the ballot IDs cast for each candidate column.
+     *
+     * @return The log, or null before the votes are tabulated.
+     */
+    public BallotIDLog getBallotIDLog() {
+        return ballotIDs;
+    }
+
+    /**
+     * Writes the order of the ballots cast for a candidate to the audit, reading the IDs back
+     * from the log chunk by chunk.
+     *
+     * @param writer The writer of the audit.
+     * @param candidate The candidate whose ballots are listed.
+     * @throws IOException If the audit can not be written or the IDs can not be read back.
+     */
+    public void writeBallotOrder(AuditWriter writer, Candidate candidate) throws IOException {
+        Integer column = columns.get(candidate);
+        if (column == null) {
+            writer.writeBallotOrder(candidate.getName(), new IntList());
+            return;
+        }
+        writer.writeBallotOrder(candidate.getName(), ballotIDs, column);
+    }
+
+    /**
+     * Deletes the spilled ballot IDs, which are not needed once the audit is written.
+     */
+    public void close() {
+        if (ballotIDs != null) {
+            ballotIDs.close();
+        }
+    }
+}
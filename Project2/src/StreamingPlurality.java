@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A Plurality election that is counted while its election files are parsed. Each ballot is
+ * read, its vote is counted and it is dropped, so no Ballot objects or ballot store are ever
+ * built. Only the vote counts and, for the audit, each candidate's ballot IDs in the order they
+ * were cast are kept, in a BallotIDLog that spills to disk. The results and audit are exactly
+ * those of a Plurality election over the same files.
+ *
+ * @author Zach Larsen
+ */
+public class StreamingPlurality extends Plurality{
+
+    /** Votes counted from the election files and the ballot IDs kept for the audit. */
+    private final StreamedVotes votes;
+
+    /**
+     * Constructor for StreamingPlurality class.
+     * @param numSeats Number of seats available in the Election
+     * @param numCandidates Number of candidates running in the Election
+     * @param numBallots Number of ballots cast in the Election, from the file headers
+     * @param candidates List of all candidates running in the Election
+     * @param loader A BallotLoader in streaming mode that has read the headers of the election files
+     * @param fileName A String specifying the name of the audit file
+     */
+    public StreamingPlurality(int numSeats, int numCandidates, int numBallots, ArrayList<Candidate> candidates, BallotLoader loader, String fileName){
+        super(numSeats, numCandidates, numBallots, candidates, new ArrayList<Ballot>(), fileName);
+        votes = new StreamedVotes(loader, false);
+    }
+
+    /**
+     * Get the votes counted from the election files, which hold each candidate's ballot IDs.
+     * @return the StreamedVotes of this election
+     */
+    public StreamedVotes getStreamedVotes(){
+        return votes;
+    }
+
+    /**
+     * Read every election file and give one vote to the candidate ranked 1 on each ballot as it
+     * is read. The files are read in parallel and their counts are merged in file order, so ballot
+     * IDs continue from one file to the next just as when the ballots are loaded.
+     * @throws IllegalArgumentException if an election file can not be read or holds an invalid ballot
+     */
+    public void tabulateVotes(){
+        votes.tabulate(candidates, getElectionName(), metrics.getWorkerUsage());
+    }
+
+    /**
+     * Write the audit, then delete the spilled ballot IDs, which are not needed once the audit
+     * is written.
+     * @param writer the writer of the audit
+     * @param electionName the name of the election type
+     * @throws IOException if the audit can not be written
+     */
+    public void writeAudit(AuditWriter writer, String electionName) throws IOException{
+        try {
+            super.writeAudit(writer, electionName);
+        } finally {
+            votes.close();
+        }
+    }
+
+    /**
+     * Write the order of the ballots cast for a candidate to the audit from their IDs.
+     * @param writer the writer of the audit
+     * @param candidate the candidate whose ballots are listed
+     * @throws IOException if the audit can not be written
+     */
+    protected void writeBallotOrder(AuditWriter writer, Candidate candidate) throws IOException{
+        votes.writeBallotOrder(writer, candidate);
+    }
+}
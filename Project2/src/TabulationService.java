@@ -0,0 +1,186 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs elections inside a long-lived program instead of one election per run of Main.
+ * Each election is loaded, counted and audited on its own objects, nothing is read from
+ * standard input or printed, and failures are returned in the result instead of ending
+ * the program, so many elections can be counted at the same time in one warmed-up JVM.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class TabulationService implements AutoCloseable {
+
+    /** Workers that run submitted elections. */
+    private final ExecutorService workers;
+
+    /**
+     * Constructs a service that runs up to the given number of elections at the same time.
+     *
+     * @param threads The number of elections run at once.
+     */
+    public TabulationService(int threads) {
+        workers = Executors.newFixedThreadPool(Math.max(threads, 1));
+    }
+
+    /**
+     * Loads, counts and audits an election on the calling thread. The time taken by each
+     * phase is kept in the result and, when the audit goes to a file, written next to it.
+     * The audit file is what makes a run final, so a run whose metrics file could not be
+     * written still succeeds, with the problem reported through getMetricsError.
+     *
+     * @param definition The election to run.
+     * @return The result of the election, which describes the problem if it failed.
+     */
+    public ElectionResult tabulate(ElectionDefinition definition) {
+        BallotLoader loader = new BallotLoader(definition.getFilenames());
+        if (definition.getCacheFile() != null) {
+            loader.setCacheFile(definition.getCacheFile());
+        }
+        loader.setStreaming(definition.isStreaming());
+        PhaseMetrics metrics = new PhaseMetrics();
+        metrics.start("load");
+        loader.setWorkerUsage(metrics.getWorkerUsage());
+        if (!loader.load()) {
+            return new ElectionResult(loader.getError());
+        }
+        metrics.stop(loader.getNumBallots());
+
+        Election election = createElection(definition, loader);
+        if (election == null) {
+            return new ElectionResult("Invalid election type.");
+        }
+        election.setMetrics(metrics);
+        String results;
+        try {
+            election.countElection();
+            results = election.formatResults(election.getElectionName());
+        } catch (RuntimeException e) {
+            return new ElectionResult("The election could not be counted: " + e);
+        }
+
+        try {
+            if (definition.getAuditFilename() != null) {
+                File auditFile = election.writeAuditFile(election.getElectionName());
+                ElectionResult result = new ElectionResult(election, results, auditFile, null);
+                try {
+                    election.writeMetricsFile();
+                } catch (IOException | RuntimeException e) {
+                    result.setMetricsError("The metrics could not be written: " + e);
+                }
+                return result;
+            }
+            ByteArrayOutputStream audit = new ByteArrayOutputStream();
+            try (AuditWriter writer = new AuditWriter(audit)) {
+                election.writeAuditTo(writer, election.getElectionName(), null);
+            }
+            return new ElectionResult(election, results, null, audit.toString(Charset.defaultCharset()));
+        } catch (FileAlreadyExistsException e) {
+            return new ElectionResult("Audit file " + definition.getAuditFilename() + " already exists.");
+        } catch (IOException | RuntimeException e) {
+            return new ElectionResult("The audit could not be written: " + e);
+        }
+    }
+
+    /**
+     * Runs an election on one of the service's workers.
+     *
+     * @param definition The election to run.
+     * @return The pending result of the election.
+     */
+    public Future<ElectionResult> submit(ElectionDefinition definition) {
+        return workers.submit(() -> tabulate(definition));
+    }
+
+    /**
+     * Runs elections on the service's workers and waits for all of them.
+     *
+     * @param definitions The elections to run.
+     * @return The results, in the same order as the definitions.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public ArrayList<ElectionResult> tabulateAll(ArrayList<ElectionDefinition> definitions) throws InterruptedException {
+        ArrayList<Future<ElectionResult>> pending = new ArrayList<>();
+        for (ElectionDefinition definition : definitions) {
+            pending.add(submit(definition));
+        }
+        ArrayList<ElectionResult> results = new ArrayList<>();
+        for (Future<ElectionResult> result : pending) {
+            try {
+                results.add(result.get());
+            } catch (ExecutionException e) {
+                results.add(new ElectionResult("The election could not be counted: " + e.getCause()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Creates the election a definition describes over the ballots of a loader. When the
+     * loader streams the ballots, the election reads them from the loader as it counts.
+     *
+     * @param definition The election to run.
+     * @param loader A loader that has loaded the election files.
+     * @return The election, or null if the election type is not valid.
+     */
+    public static Election createElection(ElectionDefinition definition, BallotLoader loader) {
+        int electionType = loader.getElectionType();
+        int numSeats = loader.getNumSeats();
+        int numCandidates = loader.getNumCandidates();
+        int numBallots = loader.getNumBallots();
+        ArrayList<Candidate> candidates = loader.getCandidates();
+        BallotStore ballots = loader.getBallots();
+        String auditFilename = definition.getAuditFilename();
+
+        if (electionType == 0 && loader.isStreaming()) {
+            return new StreamingPlurality(numSeats, numCandidates, numBallots, candidates, loader, auditFilename);
+        }
+        else if (electionType == 2 && loader.isStreaming()) {
+            return new StreamingMV(numSeats, numCandidates, numBallots, candidates, loader, auditFilename);
+        }
+
+        if (electionType == 1 && definition.isMeek()) {
+            return new MeekSTV(numSeats, numCandidates, numBallots, candidates, ballots, auditFilename);
+        }
+        else if (electionType == 1) {
+            STV stv = new STV(definition.isShuffle(), numSeats, numCandidates, numBallots, candidates, ballots, auditFilename);
+            stv.setFractionalSurplus(definition.isFractionalSurplus());
+            return stv;
+        }
+        else if (electionType == 0) {
+            Plurality plurality = new Plurality(numSeats, numCandidates, numBallots, candidates, ballots, auditFilename);
+            plurality.setParallelism(definition.getParallelism());
+            return plurality;
+        }
+        else if (electionType == 2) {
+            MV mv = new MV(numSeats, numCandidates, numBallots, candidates, ballots, auditFilename);
+            mv.setParallelism(definition.getParallelism());
+            return mv;
+        }
+        return null;
+    }
+
+    /**
+     * Stops accepting elections and waits for the running ones to finish.
+     */
+    public void close() {
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting for the running elections
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Votes counted over one range of ballot rows. Holds a vote count for each candidate
+ * column and the rows awarded to each column in row order. Each worker of a parallel
+ * tabulation fills its own Tally, and the tallies are merged afterwards in row order.
+ *
+ * @author Zach Larsen
+ */
+public class Tally {
+
+    /**
+     * Counts the votes on a range of ballot rows into a Tally.
+     */
+    public interface RowCounter {
+        /**
+         * Counts the votes on rows start (inclusive) to end (exclusive).
+         *
+         * @param store The store holding the ballots.
+         * @param start The first row to count.
+         * @param end The row after the last row to count.
+         * @param tally The tally the votes are counted into.
+         */
+        void countRows(BallotStore store, int start, int end, Tally tally);
+    }
+
+    /** Number of votes awarded to each candidate column. */
+    private final int[] counts;
+
+    /** Rows awarded to each candidate column, in row order. */
+    private final IntList[] rows;
+
+    /**
+     * Constructs an empty Tally.
+     *
+     * @param numColumns The number of candidate columns.
+     */
+    public Tally(int numColumns) {
+        counts = new int[numColumns];
+        rows = new IntList[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            rows[i] = new IntList();
+        }
+    }
+
+    /**
+     * Awards the ballot in a row to a candidate column.
+     *
+     * @param column The column of the candidate receiving the vote.
+     * @param row The row of the ballot.
+     */
+    public void award(int column, int row) {
+        counts[column]++;
+        rows[column].add(row);
+    }
+
+    /**
+     * Retrieves the number of votes awarded to a column.
+     *
+     * @param column The column of the candidate.
+     * @return The number of votes.
+     */
+    public int getCount(int column) {
+        return counts[column];
+    }
+
+    /**
+     * Retrieves the rows awarded to a column.
+     *
+     * @param column The column of the candidate.
+     * @return The rows in the order they were awarded.
+     */
+    public IntList getRows(int column) {
+        return rows[column];
+    }
+
+    /**
+     * Replaces the rows awarded to each column with the IDs of the ballots in those rows,
+     * so the tally can be handed to the candidates without looking at the store again.
+     *
+     * @param store The store holding the ballots that were counted.
+     */
+    public void toBallotIDs(BallotStore store) {
+        for (IntList columnRows : rows) {
+            for (int i = 0; i < columnRows.size(); i++) {
+                columnRows.set(i, store.getBallotID(columnRows.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Removes every vote from the tally so it can be reused.
+     */
+    public void clear() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+            rows[i].clear();
+        }
+    }
+}
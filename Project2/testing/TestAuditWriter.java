@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Test class for the buffered AuditWriter.
+ * These tests check that the bytes written match the text the audit used to be built from.
+ *
+ * @author Zach Larsen
+ */
+public class TestAuditWriter {
+
+    /**
+     * Tests that text and ints are written in order, including negative values and the int limits.
+     * @throws IOException e
+     */
+    @Test
+    public void testWriteInt() throws IOException {
+        File auditFile = File.createTempFile("audit", ".txt");
+        auditFile.deleteOnExit();
+        try (AuditWriter writer = new AuditWriter(auditFile)) {
+            writer.write("Values: ");
+            writer.writeInt(0);
+            writer.write(" ");
+            writer.writeInt(-42);
+            writer.write(" ");
+            writer.writeInt(Integer.MAX_VALUE);
+            writer.write(" ");
+            writer.writeInt(Integer.MIN_VALUE);
+        }
+        assertEquals("Values: 0 -42 2147483647 -2147483648", Files.readString(auditFile.toPath()));
+    }
+
+    /**
+     * Tests that a ballot order longer than the buffer is written the same as String formatting it.
+     * @throws IOException e
+     */
+    @Test
+    public void testWriteBallotOrder() throws IOException {
+        IntList ballotIDs = new IntList();
+        StringBuilder expected = new StringBuilder("Order of ballots cast for A: ");
+        for (int id = 1; id <= 50000; id++) {
+            ballotIDs.add(id);
+            expected.append(id == 1 ? "" : ", ").append(id);
+        }
+        expected.append("\n");
+
+        File auditFile = File.createTempFile("audit", ".txt");
+        auditFile.deleteOnExit();
+        try (AuditWriter writer = new AuditWriter(auditFile)) {
+            writer.writeBallotOrder("A", ballotIDs);
+            writer.writeBallotOrder("B", new IntList());
+        }
+        assertEquals(expected.toString(), Files.readString(auditFile.toPath()));
+    }
+}
@@ -75,4 +75,24 @@ public class TestBallot {
     assertEquals(1, ballot.getRankings().get(candidate2));
     assertNull(ballot.getRankings().get(candidate1)); // Alice should no longer be in the rankings
   }
+
+  /**
+   * Test that getRankCandidate finds the candidate given a rank, and null for an unused rank.
+   */
+  @Test
+  public void testGetRankCandidate() {
+    Candidate candidate1 = new Candidate("Alice");
+    Candidate candidate2 = new Candidate("Bob");
+    Candidate candidate3 = new Candidate("Carol");
+
+    HashMap<Candidate, Integer> rankings = new HashMap<>();
+    rankings.put(candidate1, 2);
+    rankings.put(candidate2, 0);
+    rankings.put(candidate3, 1);
+    Ballot ballot = new Ballot(1, rankings);
+
+    assertEquals(candidate3, ballot.getRankCandidate(1));
+    assertEquals(candidate1, ballot.getRankCandidate(2));
+    assertNull(ballot.getRankCandidate(3));
+  }
 }
@@ -0,0 +1,134 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+
+/**
+ * Test class for the binary BallotCache.
+ * These tests check that a cached election is read back exactly as it was parsed, and that
+ * a cache whose election files changed or whose contents are damaged is not used.
+ * The election file is copied to a temporary directory so no cache is left next to the test files.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class TestBallotCache {
+    private ArrayList<String> filenames;
+    private String cacheFile;
+
+    /**
+     * Copies an STV election file to a temporary directory.
+     *
+     * @throws IOException If the file can not be copied.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("ballot-cache");
+        Path election = directory.resolve("stv1.csv");
+        Files.copy(Path.of("stv1.csv"), election, StandardCopyOption.REPLACE_EXISTING);
+        filenames = new ArrayList<>();
+        filenames.add(election.toString());
+        cacheFile = BallotCache.cacheFileFor(filenames);
+    }
+
+    /**
+     * Tests that the cache is named after the first election file.
+     */
+    @Test
+    public void testCacheFileFor() {
+        ArrayList<String> names = new ArrayList<>();
+        names.add("election.csv");
+        names.add("election2.csv");
+        assertEquals("election.cache", BallotCache.cacheFileFor(names));
+    }
+
+    /**
+     * Tests that the first load writes the cache and the second load reads the same election from it.
+     */
+    @Test
+    public void testLoadFromCache() {
+        BallotLoader parsed = new BallotLoader(filenames);
+        parsed.setCacheFile(cacheFile);
+        assertTrue(parsed.load());
+        assertFalse(parsed.isFromCache());
+        assertTrue(Files.isRegularFile(Path.of(cacheFile)));
+
+        BallotLoader cached = new BallotLoader(filenames);
+        cached.setCacheFile(cacheFile);
+        assertTrue(cached.load());
+        assertTrue(cached.isFromCache());
+
+        assertEquals(parsed.getElectionType(), cached.getElectionType());
+        assertEquals(parsed.getNumSeats(), cached.getNumSeats());
+        assertEquals(parsed.getNumCandidates(), cached.getNumCandidates());
+        assertEquals(parsed.getNumBallots(), cached.getNumBallots());
+        assertEquals(parsed.getCandidates().size(), cached.getCandidates().size());
+        assertEquals("Bill Jones", cached.getCandidates().getFirst().getName());
+
+        BallotStore expected = parsed.getBallots();
+        BallotStore actual = cached.getBallots();
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.getBallotID(row), actual.getBallotID(row));
+            assertEquals(-1, actual.getOwner(row));
+            for (int column = 0; column < expected.getNumColumns(); column++) {
+                assertEquals(expected.getRank(row, column), actual.getRank(row, column));
+            }
+        }
+    }
+
+    /**
+     * Tests that the cache is not used once the election file has changed.
+     *
+     * @throws IOException If the modification time can not be changed.
+     */
+    @Test
+    public void testStaleCache() throws IOException {
+        BallotLoader parsed = new BallotLoader(filenames);
+        parsed.setCacheFile(cacheFile);
+        assertTrue(parsed.load());
+
+        Path election = Path.of(filenames.getFirst());
+        Files.setLastModifiedTime(election, FileTime.fromMillis(Files.getLastModifiedTime(election).toMillis() + 5000));
+        assertFalse(new BallotCache(cacheFile).read(filenames));
+
+        BallotLoader reloaded = new BallotLoader(filenames);
+        reloaded.setCacheFile(cacheFile);
+        assertTrue(reloaded.load());
+        assertFalse(reloaded.isFromCache());
+        // the cache was written again for the changed file
+        assertTrue(new BallotCache(cacheFile).read(filenames));
+    }
+
+    /**
+     * Tests that a cache whose contents were damaged fails its checksum and is not used.
+     *
+     * @throws IOException If the cache can not be changed.
+     */
+    @Test
+    public void testDamagedCache() throws IOException {
+        BallotLoader parsed = new BallotLoader(filenames);
+        parsed.setCacheFile(cacheFile);
+        assertTrue(parsed.load());
+
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            long last = file.length() - 1;
+            file.seek(last);
+            int value = file.read();
+            file.seek(last);
+            file.write(value ^ 1);
+        }
+        assertFalse(new BallotCache(cacheFile).read(filenames));
+
+        BallotLoader reloaded = new BallotLoader(filenames);
+        reloaded.setCacheFile(cacheFile);
+        assertTrue(reloaded.load());
+        assertFalse(reloaded.isFromCache());
+    }
+}
@@ -0,0 +1,155 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for the benchmark BallotGenerator.
+ * These tests check that generated election files have a valid header, the requested number
+ * of ballots, and rankings that are valid for their election type, and that they load.
+ *
+ * @author Zach Larsen
+ */
+public class TestBallotGenerator {
+
+    /**
+     * Generates an election file and reads its lines back.
+     *
+     * @param generator The generator.
+     * @param numBallots The number of ballots.
+     * @return The lines of the file.
+     * @throws IOException If the file can not be written or read.
+     */
+    private List<String> generate(BallotGenerator generator, int numBallots) throws IOException {
+        Path file = Files.createTempFile("generated", ".csv");
+        try {
+            generator.write(file.toString(), numBallots);
+            return Files.readAllLines(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Parses the rankings of a ballot line, with 0 for an empty field.
+     *
+     * @param line The ballot line.
+     * @param numCandidates The number of candidates.
+     * @return The rankings in column order.
+     */
+    private int[] ranks(String line, int numCandidates) {
+        String[] fields = line.split(",", -1);
+        assertEquals(numCandidates, fields.length, line);
+        int[] ranks = new int[numCandidates];
+        for (int i = 0; i < numCandidates; i++) {
+            ranks[i] = fields[i].isEmpty() ? 0 : Integer.parseInt(fields[i]);
+        }
+        return ranks;
+    }
+
+    /**
+     * Tests the header and ballot count of a generated file, and that each STV ballot ranks
+     * 1 to k for some k, with partial ballots ranking fewer than every candidate.
+     *
+     * @throws IOException If the file can not be written or read.
+     */
+    @Test
+    public void testSkewedPartialSTV() throws IOException {
+        BallotGenerator generator = new BallotGenerator("STV", 6, 2, 5801);
+        generator.setSkew(1.0);
+        generator.setPartialRate(0.5);
+        List<String> lines = generate(generator, 500);
+
+        assertEquals(List.of("STV", "2", "6", "500", "C1,C2,C3,C4,C5,C6"), lines.subList(0, 5));
+        assertEquals(505, lines.size());
+        int partial = 0;
+        for (String line : lines.subList(5, lines.size())) {
+            int[] ranks = ranks(line, 6);
+            int[] sorted = Arrays.stream(ranks).filter(rank -> rank != 0).sorted().toArray();
+            assertTrue(sorted.length >= 1, line);
+            for (int i = 0; i < sorted.length; i++) {
+                assertEquals(i + 1, sorted[i], line);
+            }
+            if (sorted.length < 6) {
+                partial++;
+            }
+        }
+        assertTrue(partial > 0);
+        assertTrue(partial < 500);
+    }
+
+    /**
+     * Tests that Plurality ballots mark exactly one candidate and that a skew favors the first candidates.
+     *
+     * @throws IOException If the file can not be written or read.
+     */
+    @Test
+    public void testSkewedPlurality() throws IOException {
+        BallotGenerator generator = new BallotGenerator("PV", 4, 1, 7);
+        generator.setSkew(2.0);
+        List<String> lines = generate(generator, 1000);
+
+        assertEquals(List.of("PV", "1", "4", "1000", "C1,C2,C3,C4"), lines.subList(0, 5));
+        assertEquals(1005, lines.size());
+        int[] votes = new int[4];
+        for (String line : lines.subList(5, lines.size())) {
+            int[] ranks = ranks(line, 4);
+            assertEquals(1, Arrays.stream(ranks).sum(), line);
+            for (int i = 0; i < 4; i++) {
+                votes[i] += ranks[i];
+            }
+        }
+        assertTrue(votes[0] > votes[1]);
+        assertTrue(votes[1] > votes[3]);
+    }
+
+    /**
+     * Tests that MV ballots mark between one and the number of seats with 1, and that the file loads.
+     *
+     * @throws IOException If the file can not be written or read.
+     */
+    @Test
+    public void testMVLoads() throws IOException {
+        BallotGenerator generator = new BallotGenerator("MV", 5, 3, 11);
+        Path file = Files.createTempFile("generated", ".csv");
+        try {
+            generator.write(file.toString(), 200);
+            List<String> lines = Files.readAllLines(file);
+            for (String line : lines.subList(5, lines.size())) {
+                int[] ranks = ranks(line, 5);
+                int marks = 0;
+                for (int rank : ranks) {
+                    assertTrue(rank == 0 || rank == 1, line);
+                    marks += rank;
+                }
+                assertTrue(marks >= 1 && marks <= 3, line);
+            }
+
+            ArrayList<String> filenames = new ArrayList<>();
+            filenames.add(file.toString());
+            BallotLoader loader = new BallotLoader(filenames);
+            assertTrue(loader.load());
+            assertEquals(2, loader.getElectionType());
+            assertEquals(200, loader.getBallots().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that the same seed and options give the same file.
+     *
+     * @throws IOException If the file can not be written or read.
+     */
+    @Test
+    public void testSameSeedSameFile() throws IOException {
+        BallotGenerator first = new BallotGenerator("STV", 5, 1, 42);
+        BallotGenerator second = new BallotGenerator("STV", 5, 1, 42);
+        assertEquals(generate(first, 100), generate(second, 100));
+    }
+}
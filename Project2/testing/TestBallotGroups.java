@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BallotGroups class.
+ * These tests check that ballots with identical rankings land in the same group, and that
+ * each group keeps its rows in store order.
+ *
+ * @author Zach Larsen
+ */
+public class TestBallotGroups {
+  private BallotStore store;
+
+  /**
+   * Sets up a store of six ballots with three distinct rankings.
+   */
+  @BeforeEach
+  public void setUp() {
+    Candidate[] columns = new Candidate[]{new Candidate("A"), new Candidate("B"), new Candidate("C")};
+    store = new BallotStore(columns, 6);
+    store.addBallot(1, new int[]{1, 2, 0});
+    store.addBallot(2, new int[]{0, 0, 1});
+    store.addBallot(3, new int[]{1, 2, 0});
+    store.addBallot(4, new int[]{1, 2, 3});
+    store.addBallot(5, new int[]{0, 0, 1});
+    store.addBallot(6, new int[]{1, 2, 0});
+  }
+
+  /**
+   * Tests that identical rankings share a group and groups are numbered by their first row.
+   */
+  @Test
+  public void testFromStore() {
+    BallotGroups groups = BallotGroups.fromStore(store);
+
+    assertEquals(3, groups.size());
+    assertSame(store, groups.getStore());
+    assertEquals(0, groups.getGroup(0));
+    assertEquals(1, groups.getGroup(1));
+    assertEquals(0, groups.getGroup(2));
+    assertEquals(2, groups.getGroup(3));
+    assertEquals(1, groups.getGroup(4));
+    assertEquals(0, groups.getGroup(5));
+    assertEquals(0, groups.getRepresentative(0));
+    assertEquals(1, groups.getRepresentative(1));
+    assertEquals(3, groups.getRepresentative(2));
+  }
+
+  /**
+   * Tests that each group counts its ballots and lists its rows in store order.
+   */
+  @Test
+  public void testGetRow() {
+    BallotGroups groups = BallotGroups.fromStore(store);
+
+    assertEquals(3, groups.getCount(0));
+    assertEquals(2, groups.getCount(1));
+    assertEquals(1, groups.getCount(2));
+    assertEquals(0, groups.getRow(0, 0));
+    assertEquals(2, groups.getRow(0, 1));
+    assertEquals(5, groups.getRow(0, 2));
+    assertEquals(1, groups.getRow(1, 0));
+    assertEquals(4, groups.getRow(1, 1));
+    assertEquals(3, groups.getRow(2, 0));
+  }
+
+  /**
+   * Tests grouping enough distinct rankings to grow the hash table several times.
+   */
+  @Test
+  public void testManyGroups() {
+    Candidate[] columns = new Candidate[]{new Candidate("A"), new Candidate("B")};
+    BallotStore large = new BallotStore(columns, 2000);
+    for (int i = 0; i < 2000; i++) {
+      large.addBallot(i + 1, new int[]{i % 500, 1});
+    }
+    BallotGroups groups = BallotGroups.fromStore(large);
+
+    assertEquals(500, groups.size());
+    for (int group = 0; group < groups.size(); group++) {
+      assertEquals(4, groups.getCount(group));
+      int first = groups.getRow(group, 0);
+      for (int i = 1; i < 4; i++) {
+        assertEquals(first + i * 500, groups.getRow(group, i));
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Test class for BallotIDLog.
+ * These tests check that ballot IDs spilled to disk are read back in the order they were
+ * added, that logs are appended with shifted IDs, and that the spill files are deleted.
+ *
+ * @author Zach Larsen
+ */
+public class TestBallotIDLog {
+
+    /**
+     * Tests that IDs are read back in order across spilled chunks and the in-memory buffer,
+     * with the columns kept apart.
+     *
+     * @throws IOException If the spill file can not be written or read.
+     */
+    @Test
+    public void testSpill() throws IOException {
+        try (BallotIDLog log = new BallotIDLog(2, 3)) {
+            for (int id = 1; id <= 4; id++) {
+                log.add(id % 2, id);
+            }
+            assertNull(log.getSpillFile());
+            for (int id = 5; id <= 8; id++) {
+                log.add(id % 2, id);
+            }
+            log.add(0, 10);
+            log.add(0, 12);
+
+            assertEquals(3, log.getNumChunks());
+            assertNotNull(log.getSpillFile());
+            assertEquals(6, log.size(0));
+            assertEquals(4, log.size(1));
+            assertArrayEquals(new int[]{2, 4, 6, 8, 10, 12}, log.toIntList(0).toArray());
+            assertArrayEquals(new int[]{1, 3, 5, 7}, log.toIntList(1).toArray());
+        }
+    }
+
+    /**
+     * Tests that appending a log shifts its IDs and keeps them after the IDs already held,
+     * reading the appended log's spilled chunks from its own spill file.
+     *
+     * @throws IOException If the spill file can not be written or read.
+     */
+    @Test
+    public void testAppend() throws IOException {
+        BallotIDLog first = new BallotIDLog(2, 2);
+        BallotIDLog second = new BallotIDLog(2, 2);
+        first.add(0, 1);
+        first.add(1, 2);
+        first.add(0, 3);
+        second.add(0, 1);
+        second.add(0, 2);
+        second.add(0, 3);
+        second.add(1, 4);
+        Path secondSpill = second.getSpillFile();
+
+        first.append(second, 3);
+        assertEquals(2, first.getNumChunks());
+        assertEquals(5, first.size(0));
+        assertArrayEquals(new int[]{1, 3, 4, 5, 6}, first.toIntList(0).toArray());
+        assertArrayEquals(new int[]{2, 7}, first.toIntList(1).toArray());
+        assertThrows(IllegalStateException.class, () -> first.add(0, 8));
+
+        // closing the log closes the appended one too
+        first.close();
+        assertFalse(Files.exists(secondSpill));
+    }
+
+    /**
+     * Tests that an empty column has no IDs.
+     *
+     * @throws IOException If the reader can not read the spill file.
+     */
+    @Test
+    public void testEmptyColumn() throws IOException {
+        try (BallotIDLog log = new BallotIDLog(3)) {
+            log.add(1, 1);
+            assertEquals(0, log.size(0));
+            assertFalse(log.reader(0).hasNext());
+            assertEquals(0, log.toIntList(2).size());
+        }
+    }
+
+    /**
+     * Tests that closing the log deletes its spill file.
+     *
+     * @throws IOException If the spill file can not be written.
+     */
+    @Test
+    public void testCloseDeletesSpillFile() throws IOException {
+        BallotIDLog log = new BallotIDLog(1, 1);
+        log.add(0, 1);
+        Path spillFile = log.getSpillFile();
+        assertTrue(Files.exists(spillFile));
+
+        log.close();
+        assertFalse(Files.exists(spillFile));
+        assertNull(log.getSpillFile());
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Test class for the parallel BallotLoader.
+ * These tests check that files read in parallel are validated and merged with the
+ * same ballot numbering as reading them one after another.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class TestBallotLoader {
+
+    /**
+     * Tests loading a single election file.
+     */
+    @Test
+    public void testLoadSingleFile() {
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("stv1.csv");
+
+        BallotLoader loader = new BallotLoader(filenames);
+        assertTrue(loader.load());
+
+        assertEquals(1, loader.getElectionType());
+        assertEquals(4, loader.getNumSeats());
+        assertEquals(6, loader.getNumCandidates());
+        assertEquals(4, loader.getNumBallots());
+        assertEquals("Bill Jones", loader.getCandidates().getFirst().getName());
+        assertEquals(1, loader.getBallots().getBallotID(0));
+        assertEquals(2, loader.getBallots().getRank(0, 2));
+    }
+
+    /**
+     * Tests that ballot IDs continue across files in the order the files were entered.
+     */
+    @Test
+    public void testLoadMultipleFiles() {
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("plurality.csv");
+        filenames.add("pluralityp2.csv");
+
+        BallotLoader loader = new BallotLoader(filenames);
+        assertTrue(loader.load());
+
+        BallotStore ballots = loader.getBallots();
+        assertEquals(11, loader.getNumBallots());
+        assertEquals(11, ballots.size());
+        for (int row = 0; row < ballots.size(); row++) {
+            assertEquals(row + 1, ballots.getBallotID(row));
+        }
+        // First ballot from the first file
+        assertEquals(1, ballots.getRank(0, 0));
+        assertEquals(0, ballots.getRank(0, 5));
+        // First ballot from the second file
+        assertEquals(1, ballots.getRank(5, 0));
+    }
+
+    /**
+     * Tests that a file whose header does not match the first file is rejected.
+     */
+    @Test
+    public void testLoadMismatchedFiles() {
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("plurality.csv");
+        filenames.add("mv.csv");
+
+        BallotLoader loader = new BallotLoader(filenames);
+        assertFalse(loader.load());
+        assertNotNull(loader.getError());
+    }
+
+    /**
+     * Tests that invalid or missing files are rejected.
+     */
+    @Test
+    public void testLoadInvalidFiles() {
+        ArrayList<String> invalidType = new ArrayList<>();
+        invalidType.add("invalid_type.csv");
+        assertFalse(new BallotLoader(invalidType).load());
+
+        ArrayList<String> missing = new ArrayList<>();
+        missing.add("notRealFile.csv");
+        assertFalse(new BallotLoader(missing).load());
+    }
+
+    /**
+     * Tests that the ballot count in a header is only a hint: headers that claim far more
+     * ballots than the file holds, including counts near the int limit, still load the rows
+     * that are there.
+     *
+     * @throws IOException If the temporary election file can not be written.
+     */
+    @Test
+    public void testHeaderOverstatesBallots() throws IOException {
+        for (String count : new String[]{"1500000000", "2147483000"}) {
+            Path file = Files.createTempFile("overstated", ".csv");
+            try {
+                Files.writeString(file, "PV\n1\n2\n" + count + "\nA,B\n1,\n,1\n");
+                ArrayList<String> filenames = new ArrayList<>();
+                filenames.add(file.toString());
+
+                BallotLoader loader = new BallotLoader(filenames);
+                assertTrue(loader.load(), loader.getError());
+                assertEquals(Integer.parseInt(count), loader.getNumBallots());
+                assertEquals(2, loader.getBallots().size());
+                assertEquals(2, loader.getBallots().getBallotID(1));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Tests that the starting capacity is capped by the lines the file could hold.
+     */
+    @Test
+    public void testInitialCapacity() {
+        assertEquals(5, BallotLoader.initialCapacity(5, 1000, 6));
+        assertEquals(10, BallotLoader.initialCapacity(1500000000, 60, 6));
+        assertEquals(0, BallotLoader.initialCapacity(Integer.MAX_VALUE, 0, 6));
+    }
+}
@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+/**
+ * Test class for the memory-mapped BallotReader.
+ * These tests check that ballot lines are tokenized into the same rankings that
+ * Main.readBallots produces with a Scanner.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class TestBallotReader {
+
+    /**
+     * Tests that the reader skips the header and reads the rankings of an STV file.
+     * @throws IOException e
+     */
+    @Test
+    public void testReadBallotSTV() throws IOException {
+        int[] ranks = new int[6];
+        try (BallotReader reader = new BallotReader("stv1.csv")) {
+            reader.skipLines(BallotReader.HEADER_LINES);
+
+            // First ballot from stv1.csv
+            assertTrue(reader.readBallot(ranks));
+            assertArrayEquals(new int[]{1, 0, 2, 0, 3, 0}, ranks);
+
+            // Second ballot from stv1.csv
+            assertTrue(reader.readBallot(ranks));
+            assertArrayEquals(new int[]{3, 2, 1, 4, 6, 5}, ranks);
+        }
+    }
+
+    /**
+     * Tests that the reader returns false once every ballot has been read.
+     * @throws IOException e
+     */
+    @Test
+    public void testReadBallotEndOfFile() throws IOException {
+        int[] ranks = new int[6];
+        int numRead = 0;
+        try (BallotReader reader = new BallotReader("plurality.csv")) {
+            reader.skipLines(BallotReader.HEADER_LINES);
+            while (reader.readBallot(ranks)) {
+                numRead++;
+            }
+            assertFalse(reader.readBallot(ranks));
+        }
+        assertEquals(5, numRead);
+    }
+
+    /**
+     * Tests that the reader and Main.readBallots agree on every ballot of a file.
+     * @throws IOException e
+     */
+    @Test
+    public void testReadBallotMatchesScanner() throws IOException {
+        Scanner scanner = new Scanner(new File("mv.csv"));
+        for (int i = 0; i < 4; i++) {
+            scanner.nextLine();
+        }
+        ArrayList<Candidate> candidates = Main.readCandidates(scanner);
+        ArrayList<Scanner> scanners = new ArrayList<>();
+        scanners.add(scanner);
+        ArrayList<Ballot> expected = Main.readBallots(scanners, candidates);
+
+        int[] ranks = new int[candidates.size()];
+        try (BallotReader reader = new BallotReader("mv.csv")) {
+            reader.skipLines(BallotReader.HEADER_LINES);
+            for (Ballot ballot : expected) {
+                assertTrue(reader.readBallot(ranks));
+                for (int i = 0; i < candidates.size(); i++) {
+                    assertEquals(ballot.getRankings().get(candidates.get(i)), ranks[i]);
+                }
+            }
+            assertFalse(reader.readBallot(ranks));
+        }
+    }
+
+    /**
+     * Writes ballot lines to a temporary election file with an MV header.
+     *
+     * @param lines The ballot lines.
+     * @return The path of the file.
+     * @throws IOException If the file can not be written.
+     */
+    private Path writeBallots(String lines) throws IOException {
+        Path file = Files.createTempFile("ballots", ".csv");
+        Files.writeString(file, "MV\n1\n2\n1\nA,B\n" + lines);
+        return file;
+    }
+
+    /**
+     * Tests that fields Integer.parseInt rejects are rejected: a bare sign, a repeated sign,
+     * a sign after digits, and numbers too large for an int, while the int limits themselves are read.
+     * @throws IOException e
+     */
+    @Test
+    public void testRejectsWhatParseIntRejects() throws IOException {
+        int[] ranks = new int[2];
+        for (String line : new String[]{"-,1\n", "1,-\n", "--1,1\n", "1-,1\n", "2147483648,1\n", "1,-2147483649\n", "99999999999,1\n"}) {
+            Path file = writeBallots(line);
+            try (BallotReader reader = new BallotReader(file.toString())) {
+                reader.skipLines(BallotReader.HEADER_LINES);
+                assertThrows(NumberFormatException.class, () -> reader.readBallot(ranks), line);
+            }
+            Files.delete(file);
+        }
+
+        Path file = writeBallots("2147483647,-2147483648\n");
+        try (BallotReader reader = new BallotReader(file.toString())) {
+            reader.skipLines(BallotReader.HEADER_LINES);
+            assertTrue(reader.readBallot(ranks));
+            assertArrayEquals(new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE}, ranks);
+        }
+        Files.delete(file);
+    }
+
+    /**
+     * Tests that a missing file can not be opened.
+     */
+    @Test
+    public void testMissingFile() {
+        assertThrows(IOException.class, () -> new BallotReader("notRealFile.csv"));
+    }
+}
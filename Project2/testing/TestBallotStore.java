@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Unit tests for the BallotStore class.
+ * These tests check that ballots are stored in the right rows and columns, whether they
+ * are added from ranks or copied from a list of Ballot objects.
+ *
+ * @author Zach Larsen
+ */
+public class TestBallotStore {
+  private Candidate[] columns;
+  private BallotStore store;
+
+  /**
+   * Sets up a store of three ballots over three candidates.
+   */
+  @BeforeEach
+  public void setUp() {
+    columns = new Candidate[]{new Candidate("A"), new Candidate("B"), new Candidate("C")};
+    store = new BallotStore(columns, 1);
+    store.addBallot(1, new int[]{1, 2, 0});
+    store.addBallot(2, new int[]{0, 0, 1});
+    store.addBallot(3, new int[]{2, 1, 3});
+  }
+
+  /**
+   * Tests that the store grows past its starting capacity and keeps every row.
+   */
+  @Test
+  public void testAddBallot() {
+    assertEquals(3, store.size());
+    assertEquals(3, store.getNumColumns());
+    assertEquals(2, store.getBallotID(1));
+    assertEquals(2, store.getRank(0, 1));
+    assertEquals(3, store.getRank(2, 2));
+    assertEquals(-1, store.getOwner(0));
+  }
+
+  /**
+   * Tests comparing and hashing the rankings of two rows.
+   */
+  @Test
+  public void testSameRanks() {
+    store.addBallot(4, new int[]{1, 2, 0});
+    assertTrue(store.sameRanks(0, 3));
+    assertEquals(store.hashRanks(0), store.hashRanks(3));
+    assertFalse(store.sameRanks(0, 1));
+    assertFalse(store.sameRanks(0, 2));
+  }
+
+  /**
+   * Tests finding the column a ballot gave a rank.
+   */
+  @Test
+  public void testFindRank() {
+    assertEquals(0, store.findRank(0, 1));
+    assertEquals(2, store.findRank(1, 1));
+    assertEquals(-1, store.findRank(1, 2));
+    assertEquals(1, store.findRank(2, 1));
+  }
+
+  /**
+   * Tests that the rank-ordered index agrees with scanning the row.
+   */
+  @Test
+  public void testGetRankColumn() {
+    for (int row = 0; row < store.size(); row++) {
+      for (int rank = 1; rank <= 4; rank++) {
+        assertEquals(store.findRank(row, rank), store.getRankColumn(row, rank));
+      }
+    }
+    assertEquals(2, store.getRankColumn(2, 3));
+    assertEquals(-1, store.getRankColumn(1, 2));
+
+    // The index is rebuilt when more ballots are added
+    store.addBallot(4, new int[]{0, 1, 2});
+    assertEquals(1, store.getRankColumn(3, 1));
+  }
+
+  /**
+   * Tests building a store from a list of HashMap ballots.
+   */
+  @Test
+  public void testFromBallots() {
+    ArrayList<Candidate> candidates = new ArrayList<>();
+    for (Candidate candidate : columns) {
+      candidates.add(candidate);
+    }
+    HashMap<Candidate, Integer> rankings = new HashMap<>();
+    rankings.put(columns[2], 1);
+    rankings.put(columns[0], 2);
+    ArrayList<Ballot> ballots = new ArrayList<>();
+    Ballot ballot = new Ballot(9, rankings);
+    ballots.add(ballot);
+
+    BallotStore listStore = BallotStore.fromBallots(ballots, candidates);
+
+    assertEquals(1, listStore.size());
+    assertEquals(9, listStore.getBallotID(0));
+    assertEquals(2, listStore.getRank(0, 0));
+    assertEquals(0, listStore.getRank(0, 1));
+    assertEquals(1, listStore.getRank(0, 2));
+  }
+
+  /**
+   * Tests that a ballot ranking a candidate beyond what a short holds is rejected instead
+   * of being stored as a different rank.
+   */
+  @Test
+  public void testFromBallotsRankOutOfRange() {
+    ArrayList<Candidate> candidates = new ArrayList<>();
+    for (Candidate candidate : columns) {
+      candidates.add(candidate);
+    }
+    HashMap<Candidate, Integer> rankings = new HashMap<>();
+    rankings.put(columns[1], 32768);
+    ArrayList<Ballot> ballots = new ArrayList<>();
+    ballots.add(new Ballot(4, rankings));
+
+    assertThrows(NumberFormatException.class, () -> BallotStore.fromBallots(ballots, candidates));
+  }
+
+  /**
+   * Tests that shuffling keeps each ballot ID with its own rankings.
+   */
+  @Test
+  public void testShuffle() {
+    store.shuffle(new Random(5));
+
+    assertEquals(3, store.size());
+    for (int row = 0; row < store.size(); row++) {
+      if (store.getBallotID(row) == 2) {
+        assertEquals(1, store.getRank(row, 2));
+      }
+      else if (store.getBallotID(row) == 3) {
+        assertEquals(1, store.getRank(row, 1));
+      }
+      else {
+        assertEquals(1, store.getRank(row, 0));
+      }
+    }
+  }
+}
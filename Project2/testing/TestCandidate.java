@@ -43,7 +43,7 @@ public class TestCandidate {
     assertEquals("John Doe", candidate.getName());
     assertEquals("active", candidate.getStatus());
     assertEquals(0, candidate.getVoteCount());
-    assertNotNull(candidate.getBallots());
+    assertNotNull(candidate.getBallotIDs());
   }
 
   /**
@@ -76,7 +76,7 @@ public class TestCandidate {
   public void testAddBallot() {
     // Testing adding ballots
     candidate.addBallot(ballot);
-    assertEquals(1, candidate.getBallots().size());
+    assertEquals(1, candidate.getBallotIDs().size());
   }
 
   /**
@@ -122,6 +122,30 @@ public class TestCandidate {
     // Testing adding multiple ballots
     candidate.addBallot(ballot);
     candidate.addBallot(ballot);
-    assertEquals(2, candidate.getBallots().size());
+    assertEquals(2, candidate.getBallotIDs().size());
+  }
+
+  /**
+   * Tests that only the IDs of added ballots are kept, in the order they were added.
+   */
+  @Test
+  public void testAddBallotID() {
+    candidate.addBallot(ballot);
+    candidate.addBallotID(7);
+    candidate.addBallotID(3);
+    assertArrayEquals(new int[]{1, 7, 3}, candidate.getBallotIDs().toArray());
+  }
+
+  /**
+   * Tests that the candidate is active exactly while its status is "active".
+   */
+  @Test
+  public void testIsActive() {
+    assertTrue(candidate.isActive());
+    candidate.setStatus("eliminated");
+    assertFalse(candidate.isActive());
+    assertEquals("eliminated", candidate.getStatus());
+    candidate.setStatus("active");
+    assertTrue(candidate.isActive());
   }
 }
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+/**
+ * Unit tests for the CandidateHeap class.
+ * These tests check that the lowest active candidates and their ties are found after
+ * vote counts and statuses change.
+ *
+ * @author Amelia Lunning
+ */
+public class TestCandidateHeap {
+  private ArrayList<Candidate> candidates;
+
+  /**
+   * Sets up five candidates with vote counts 4, 2, 7, 2 and 9.
+   */
+  @BeforeEach
+  public void setUp() {
+    candidates = new ArrayList<>();
+    int[] voteCounts = {4, 2, 7, 2, 9};
+    for (int i = 0; i < voteCounts.length; i++) {
+      Candidate candidate = new Candidate("C" + i);
+      candidate.setVoteCount(voteCounts[i]);
+      candidates.add(candidate);
+    }
+  }
+
+  /**
+   * Tests that every candidate tied for the fewest votes is returned in candidate order.
+   */
+  @Test
+  public void testGetLowestTies() {
+    CandidateHeap heap = new CandidateHeap(candidates);
+    ArrayList<Candidate> lowest = heap.getLowest();
+
+    assertEquals(2, lowest.size());
+    assertEquals(candidates.get(1), lowest.get(0));
+    assertEquals(candidates.get(3), lowest.get(1));
+  }
+
+  /**
+   * Tests that a changed vote count moves the candidate in the heap.
+   */
+  @Test
+  public void testUpdateVoteCount() {
+    CandidateHeap heap = new CandidateHeap(candidates);
+    candidates.get(1).setVoteCount(5);
+    heap.update(candidates.get(1));
+    candidates.get(4).setVoteCount(1);
+    heap.update(candidates.get(4));
+
+    ArrayList<Candidate> lowest = heap.getLowest();
+    assertEquals(1, lowest.size());
+    assertEquals(candidates.get(4), lowest.getFirst());
+  }
+
+  /**
+   * Tests that eliminated candidates are left out, whether they were eliminated before or
+   * after the heap was built.
+   */
+  @Test
+  public void testEliminatedCandidates() {
+    candidates.get(1).setStatus("eliminated");
+    CandidateHeap heap = new CandidateHeap(candidates);
+    assertEquals(candidates.get(3), heap.getLowest().getFirst());
+    assertEquals(1, heap.getLowest().size());
+
+    for (Candidate candidate : candidates) {
+      candidate.setStatus("eliminated");
+      heap.update(candidate);
+    }
+    assertTrue(heap.isEmpty());
+    assertTrue(heap.getLowest().isEmpty());
+  }
+}
@@ -0,0 +1,125 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Test class for ElectionEvents.
+ * These tests run elections while a flight recording is running and check that the parse,
+ * tabulation, round and audit events are recorded with their fields filled in.
+ *
+ * @author Zach Larsen
+ */
+public class TestElectionEvents {
+
+    /** Result of the election counted by the last recording. */
+    private ElectionResult result;
+
+    /**
+     * Counts an election through the TabulationService while a recording of the election events runs.
+     *
+     * @param definition The election to count.
+     * @return The election events that were recorded.
+     * @throws IOException If the recording can not be written or read.
+     */
+    private List<RecordedEvent> record(ElectionDefinition definition) throws IOException {
+        Path file = Files.createTempFile("election", ".jfr");
+        try (Recording recording = new Recording();
+             TabulationService service = new TabulationService(1)) {
+            recording.enable("election.Parse");
+            recording.enable("election.Tabulate");
+            recording.enable("election.Round");
+            recording.enable("election.Audit");
+            recording.start();
+            result = service.tabulate(definition);
+            assertTrue(result.isSuccess());
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        return events;
+    }
+
+    /**
+     * Finds the recorded events of one type.
+     *
+     * @param events The recorded events.
+     * @param name The event name.
+     * @return The events with that name, in the order they were recorded.
+     */
+    private ArrayList<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        ArrayList<RecordedEvent> found = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                found.add(event);
+            }
+        }
+        found.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+        return found;
+    }
+
+    /**
+     * Tests the events of a Plurality election.
+     *
+     * @throws IOException If the recording can not be written or read.
+     */
+    @Test
+    public void testPluralityEvents() throws IOException {
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("plurality.csv");
+        List<RecordedEvent> events = record(new ElectionDefinition(filenames));
+
+        ArrayList<RecordedEvent> parses = named(events, "election.Parse");
+        assertEquals(1, parses.size());
+        assertEquals("plurality.csv", parses.getFirst().getString("filename"));
+        assertEquals(5, parses.getFirst().getInt("ballots"));
+
+        ArrayList<RecordedEvent> tabulations = named(events, "election.Tabulate");
+        assertEquals(1, tabulations.size());
+        assertEquals("Plurality", tabulations.getFirst().getString("election"));
+        assertEquals(5, tabulations.getFirst().getInt("ballots"));
+        assertEquals(6, tabulations.getFirst().getInt("candidates"));
+
+        ArrayList<RecordedEvent> audits = named(events, "election.Audit");
+        assertEquals(1, audits.size());
+        assertEquals("", audits.getFirst().getString("filename"));
+        assertTrue(named(events, "election.Round").isEmpty());
+    }
+
+    /**
+     * Tests that every round of an STV count is recorded in order, and that the rounds
+     * together elect every winner.
+     *
+     * @throws IOException If the recording can not be written or read.
+     */
+    @Test
+    public void testRoundEvents() throws IOException {
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("stv1.csv");
+        ElectionDefinition definition = new ElectionDefinition(filenames);
+        definition.setFractionalSurplus(true);
+        List<RecordedEvent> events = record(definition);
+
+        ArrayList<RecordedEvent> rounds = named(events, "election.Round");
+        assertFalse(rounds.isEmpty());
+        int elected = 0;
+        for (int i = 0; i < rounds.size(); i++) {
+            RecordedEvent round = rounds.get(i);
+            assertEquals("WIGM", round.getString("method"));
+            assertEquals(i + 1, round.getInt("round"));
+            if (!round.getString("elected").isEmpty()) {
+                elected += round.getString("elected").split(", ").length;
+            }
+        }
+        assertEquals(result.getWinners().size(), elected);
+        assertTrue(rounds.getFirst().getInt("ballotsTransferred") >= result.getNumBallots());
+    }
+}
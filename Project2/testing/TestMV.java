@@ -306,28 +306,28 @@ public class TestMV {
     mv.tabulateVotes();
 
     assertEquals(5,candidate.get(0).getVoteCount());
-    assertEquals(5,candidate.get(0).getBallots().size());
+    assertEquals(5,candidate.get(0).getBallotIDs().size());
 
     assertEquals(4,candidate.get(1).getVoteCount());
-    assertEquals(4,candidate.get(1).getBallots().size());
+    assertEquals(4,candidate.get(1).getBallotIDs().size());
 
     assertEquals(3,candidate.get(2).getVoteCount());
-    assertEquals(3,candidate.get(2).getBallots().size());
+    assertEquals(3,candidate.get(2).getBallotIDs().size());
 
     assertEquals(3,candidate.get(3).getVoteCount());
-    assertEquals(3,candidate.get(3).getBallots().size());
+    assertEquals(3,candidate.get(3).getBallotIDs().size());
 
     assertEquals(4,candidate.get(4).getVoteCount());
-    assertEquals(4,candidate.get(4).getBallots().size());
+    assertEquals(4,candidate.get(4).getBallotIDs().size());
 
     assertEquals(4,candidate.get(5).getVoteCount());
-    assertEquals(4,candidate.get(5).getBallots().size());
+    assertEquals(4,candidate.get(5).getBallotIDs().size());
 
     assertEquals(3,candidate.get(6).getVoteCount());
-    assertEquals(3,candidate.get(6).getBallots().size());
+    assertEquals(3,candidate.get(6).getBallotIDs().size());
 
     assertEquals(3,candidate.get(7).getVoteCount());
-    assertEquals(3,candidate.get(7).getBallots().size());
+    assertEquals(3,candidate.get(7).getBallotIDs().size());
   }
 
   /**
@@ -340,11 +340,11 @@ public class TestMV {
     mv.tabulateVotes();
 
     assertEquals(5,candidate2.get(0).getVoteCount());
-    assertEquals(5,candidate2.get(0).getBallots().size());
+    assertEquals(5,candidate2.get(0).getBallotIDs().size());
     assertEquals(4,candidate2.get(1).getVoteCount());
-    assertEquals(4,candidate2.get(1).getBallots().size());
+    assertEquals(4,candidate2.get(1).getBallotIDs().size());
     assertEquals(4,candidate2.get(2).getVoteCount());
-    assertEquals(4,candidate2.get(2).getBallots().size());
+    assertEquals(4,candidate2.get(2).getBallotIDs().size());
 
   }
 
@@ -358,11 +358,11 @@ public class TestMV {
     mv.tabulateVotes();
 
     assertEquals(2,candidate3.get(0).getVoteCount());
-    assertEquals(2,candidate3.get(0).getBallots().size());
+    assertEquals(2,candidate3.get(0).getBallotIDs().size());
     assertEquals(1,candidate3.get(1).getVoteCount());
-    assertEquals(1,candidate3.get(1).getBallots().size());
+    assertEquals(1,candidate3.get(1).getBallotIDs().size());
     assertEquals(6,candidate3.get(2).getVoteCount());
-    assertEquals(6,candidate3.get(2).getBallots().size());
+    assertEquals(6,candidate3.get(2).getBallotIDs().size());
 
   }
 
@@ -596,28 +596,28 @@ public class TestMV {
     mv.tabulateVotes();
 
     assertEquals(5,candidate.get(0).getVoteCount());
-    assertEquals(5,candidate.get(0).getBallots().size());
+    assertEquals(5,candidate.get(0).getBallotIDs().size());
 
     assertEquals(4,candidate.get(1).getVoteCount());
-    assertEquals(4,candidate.get(1).getBallots().size());
+    assertEquals(4,candidate.get(1).getBallotIDs().size());
 
     assertEquals(3,candidate.get(2).getVoteCount());
-    assertEquals(3,candidate.get(2).getBallots().size());
+    assertEquals(3,candidate.get(2).getBallotIDs().size());
 
     assertEquals(3,candidate.get(3).getVoteCount());
-    assertEquals(3,candidate.get(3).getBallots().size());
+    assertEquals(3,candidate.get(3).getBallotIDs().size());
 
     assertEquals(4,candidate.get(4).getVoteCount());
-    assertEquals(4,candidate.get(4).getBallots().size());
+    assertEquals(4,candidate.get(4).getBallotIDs().size());
 
     assertEquals(4,candidate.get(5).getVoteCount());
-    assertEquals(4,candidate.get(5).getBallots().size());
+    assertEquals(4,candidate.get(5).getBallotIDs().size());
 
     assertEquals(3,candidate.get(6).getVoteCount());
-    assertEquals(3,candidate.get(6).getBallots().size());
+    assertEquals(3,candidate.get(6).getBallotIDs().size());
 
     assertEquals(3,candidate.get(7).getVoteCount());
-    assertEquals(3,candidate.get(7).getBallots().size());
+    assertEquals(3,candidate.get(7).getBallotIDs().size());
 
 
     mv.determine_Winner_Loser();
@@ -716,4 +716,26 @@ public class TestMV {
     auditFile.delete();
   }
 
+  /**
+   * Tests that tabulating in parallel chunks gives the same vote counts as the serial
+   * tabulation, with each candidate's ballots still in ballot order.
+   */
+  @Test
+  public void testParallelTabulateVotes(){
+    MV mv = new MV(5,8,8,candidate,ballots, null);
+    mv.setParallelism(4);
+    mv.setChunkSize(3);
+    mv.tabulateVotes();
+
+    int[] expected = {5, 4, 3, 3, 4, 4, 3, 3};
+    for (int i = 0; i < expected.length; i++){
+      assertEquals(expected[i], candidate.get(i).getVoteCount());
+      assertEquals(expected[i], candidate.get(i).getBallotIDs().size());
+
+      IntList candidateBallots = candidate.get(i).getBallotIDs();
+      for (int j = 1; j < candidateBallots.size(); j++){
+        assertTrue(candidateBallots.get(j - 1) < candidateBallots.get(j));
+      }
+    }
+  }
 }
@@ -1,6 +1,9 @@
 import org.junit.jupiter.api.Test;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.io.File;
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,6 +50,53 @@ public class TestMain {
         assertFalse(Main.parseShuffleOption(args2, 1));
 
     }
+    /**
+     * Test the parseSurplusOption(String[], int) method, which only applies to STV.
+     */
+    @Test
+    public void testParseSurplusOption(){
+        String[] args = {"-wigm"};
+        assertTrue(Main.parseSurplusOption(args, 1));
+        assertFalse(Main.parseSurplusOption(args, 0));
+        assertFalse(Main.parseSurplusOption(new String[]{"-ns"}, 1));
+        assertFalse(Main.parseShuffleOption(args, 1));
+    }
+    /**
+     * Test the parseMeekOption(String[], int) method, which only applies to STV.
+     */
+    @Test
+    public void testParseMeekOption(){
+        String[] args = {"-meek"};
+        assertTrue(Main.parseMeekOption(args, 1));
+        assertFalse(Main.parseMeekOption(args, 2));
+        assertFalse(Main.parseMeekOption(new String[]{"-wigm"}, 1));
+        assertFalse(Main.parseShuffleOption(args, 1));
+    }
+    /**
+     * Test the parseCacheOption(String[]) method, which can be combined with other flags.
+     */
+    @Test
+    public void testParseCacheOption(){
+        String[] args = {"-cache", "-wigm"};
+        assertTrue(Main.parseCacheOption(args));
+        assertFalse(Main.parseCacheOption(new String[]{"-wigm"}));
+        String[] remaining = Main.removeCacheOption(args);
+        assertEquals(1, remaining.length);
+        assertTrue(Main.parseSurplusOption(remaining, 1));
+    }
+    /**
+     * Test the parseStreamOption(String[]) method, which can be combined with other flags.
+     */
+    @Test
+    public void testParseStreamOption(){
+        String[] args = {"-stream", "-cache"};
+        assertTrue(Main.parseStreamOption(args));
+        assertFalse(Main.parseStreamOption(new String[]{"-cache"}));
+        String[] remaining = Main.removeStreamOption(args);
+        assertArrayEquals(new String[]{"-cache"}, remaining);
+        assertTrue(Main.parseManifestLine("audit a.csv -stream", Path.of("/elections")).isStreaming());
+        assertFalse(Main.parseManifestLine("audit a.csv", Path.of("/elections")).isStreaming());
+    }
     /**
      * Test the parseShuffleOption(String[], int) method for missing shuffle flag.
      */
@@ -589,4 +639,66 @@ public class TestMain {
         assertTrue(result.contains("file1.csv"));
     }
 
+    /**
+     * Tests parsing a manifest line into an election definition.
+     */
+    @Test
+    public void testParseManifestLine() {
+        Path directory = Path.of("/elections");
+        ElectionDefinition definition = Main.parseManifestLine("audits/stv a.csv b.csv -wigm -cache", directory);
+
+        assertNotNull(definition);
+        assertEquals(Path.of("/elections/audits/stv.txt").toString(), definition.getAuditFilename());
+        assertEquals(2, definition.getFilenames().size());
+        assertEquals(Path.of("/elections/a.csv").toString(), definition.getFilenames().getFirst());
+        assertTrue(definition.isFractionalSurplus());
+        assertFalse(definition.isShuffle());
+        assertEquals(Path.of("/elections/a.cache").toString(), definition.getCacheFile());
+
+        ElectionDefinition plain = Main.parseManifestLine("audit.txt a.csv", directory);
+        assertEquals(Path.of("/elections/audit.txt").toString(), plain.getAuditFilename());
+        assertTrue(plain.isShuffle());
+        assertNull(plain.getCacheFile());
+    }
+
+    /**
+     * Tests that invalid manifest lines are rejected.
+     */
+    @Test
+    public void testParseManifestLineInvalid() {
+        Path directory = Path.of("/elections");
+        assertNull(Main.parseManifestLine("audit@stv a.csv", directory));
+        assertNull(Main.parseManifestLine("audit", directory));
+        assertNull(Main.parseManifestLine("audit a.csv a.csv", directory));
+        assertNull(Main.parseManifestLine("audit a.csv -ns -meek", directory));
+        assertNull(Main.parseManifestLine("audit a.txt", directory));
+    }
+
+    /**
+     * Tests running a manifest of several elections in one call, and that a manifest
+     * with an invalid line runs nothing.
+     *
+     * @throws IOException If the temporary files can not be written.
+     */
+    @Test
+    public void testRunManifest() throws IOException {
+        Path directory = Files.createTempDirectory("manifest");
+        Files.copy(Path.of("stv1.csv"), directory.resolve("stv1.csv"));
+        Files.copy(Path.of("plurality.csv"), directory.resolve("plurality.csv"));
+        Path manifest = directory.resolve("manifest.txt");
+        Files.writeString(manifest, "# nightly\nstv stv1.csv -ns\n\nplurality plurality.csv\n");
+
+        assertEquals(2, Main.readManifest(manifest.toString()).size());
+        assertEquals(0, Main.runManifest(manifest.toString(), 2));
+        assertTrue(Files.exists(directory.resolve("stv.txt")));
+        assertTrue(Files.exists(directory.resolve("plurality.txt")));
+        // the audits already exist, so running again fails
+        assertEquals(-1, Main.runManifest(manifest.toString(), 2));
+
+        Path invalid = directory.resolve("invalid.txt");
+        Files.writeString(invalid, "again stv1.csv\nbad@audit stv1.csv\n");
+        assertNull(Main.readManifest(invalid.toString()));
+        assertEquals(-1, Main.runManifest(invalid.toString(), 2));
+        assertFalse(Files.exists(directory.resolve("again.txt")));
+    }
 }
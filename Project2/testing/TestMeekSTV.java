@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+/**
+ * Unit tests for the MeekSTV class.
+ * These tests check the grouping of identical preference orders, the winners of a count
+ * that needs a surplus to be passed on, and the convergence metrics of each iteration.
+ *
+ * @author Amelia Lunning
+ */
+public class TestMeekSTV {
+  private ArrayList<Candidate> candidates;
+  private BallotStore store;
+
+  /**
+   * Sets up 11 ballots over A, B and C: six A then B, two B and three C.
+   */
+  @BeforeEach
+  public void setUp() {
+    candidates = new ArrayList<>();
+    candidates.add(new Candidate("A"));
+    candidates.add(new Candidate("B"));
+    candidates.add(new Candidate("C"));
+    store = new BallotStore(candidates.toArray(new Candidate[0]), 11);
+    int id = 1;
+    for (int i = 0; i < 6; i++) {
+      store.addBallot(id++, new int[]{1, 2, 0});
+    }
+    for (int i = 0; i < 2; i++) {
+      store.addBallot(id++, new int[]{0, 1, 0});
+    }
+    for (int i = 0; i < 3; i++) {
+      store.addBallot(id++, new int[]{0, 0, 1});
+    }
+  }
+
+  /**
+   * Tests that ballots with the same preference order are counted as one group.
+   */
+  @Test
+  public void testGroupBallots() {
+    MeekSTV meek = new MeekSTV(2, 3, 11, candidates, store, null);
+    meek.groupBallots();
+    assertEquals(3, meek.getNumOrders());
+  }
+
+  /**
+   * Tests that A's surplus is passed on to B, electing B ahead of C. With a quota of 11/3,
+   * A keeps 11/18 of each vote and passes 7/18 of six votes to B.
+   */
+  @Test
+  public void testDistributeVotes() {
+    MeekSTV meek = new MeekSTV(2, 3, 11, candidates, store, null);
+    meek.distributeVotes();
+
+    assertEquals(candidates.get(0), meek.getWinners().get(0));
+    assertEquals(candidates.get(1), meek.getWinners().get(1));
+    assertEquals(candidates.get(2), meek.getLosers().getFirst());
+    assertEquals(11.0 / 3, meek.getQuota(), 1e-6);
+    assertEquals(11.0 / 3, meek.getVotes(candidates.get(0)), 1e-6);
+    assertEquals(2 + 7.0 / 3, meek.getVotes(candidates.get(1)), 1e-6);
+
+    // each ballot is listed under the candidate who kept most of it
+    assertEquals(6, candidates.get(0).getBallotIDs().size());
+    assertEquals(2, candidates.get(1).getBallotIDs().size());
+  }
+
+  /**
+   * Tests that the quota comes from the ballots in the store, not the ballot count given to
+   * the constructor, so a header that overstates the count still elects A and B by quota.
+   */
+  @Test
+  public void testQuotaUsesStoredBallots() {
+    MeekSTV meek = new MeekSTV(2, 3, 1000, candidates, store, null);
+    meek.distributeVotes();
+
+    assertEquals(candidates.get(0), meek.getWinners().get(0));
+    assertEquals(candidates.get(1), meek.getWinners().get(1));
+    assertEquals(11.0 / 3, meek.getQuota(), 1e-6);
+    assertEquals(2 + 7.0 / 3, meek.getVotes(candidates.get(1)), 1e-6);
+  }
+
+  /**
+   * Tests that every iteration is recorded and the count ends within the tolerance.
+   */
+  @Test
+  public void testIterations() {
+    MeekSTV meek = new MeekSTV(2, 3, 11, candidates, store, null);
+    meek.setTolerance(1e-6);
+    meek.distributeVotes();
+
+    ArrayList<MeekSTV.Iteration> iterations = meek.getIterations();
+    assertFalse(iterations.isEmpty());
+    assertTrue(iterations.getLast().getMaxError() <= 1e-6);
+    assertEquals(1, iterations.getFirst().getRound());
+    for (MeekSTV.Iteration iteration : iterations) {
+      assertTrue(iteration.getNanos() >= 0);
+    }
+  }
+
+  /**
+   * Tests that a tie for the fewest votes is settled like STV: of A and B with one vote each,
+   * A got their first vote last and is excluded, even though A comes first in the list.
+   */
+  @Test
+  public void testTieExcludesLastFirstVote() {
+    ArrayList<Candidate> tied = new ArrayList<>();
+    for (String name : new String[]{"A", "B", "C", "D"}) {
+      tied.add(new Candidate(name));
+    }
+    BallotStore tiedStore = new BallotStore(tied.toArray(new Candidate[0]), 6);
+    tiedStore.addBallot(1, new int[]{0, 0, 1, 0});
+    tiedStore.addBallot(2, new int[]{0, 0, 0, 1});
+    tiedStore.addBallot(3, new int[]{0, 1, 0, 0});
+    tiedStore.addBallot(4, new int[]{1, 0, 0, 0});
+    tiedStore.addBallot(5, new int[]{0, 0, 1, 0});
+    tiedStore.addBallot(6, new int[]{0, 0, 0, 1});
+
+    MeekSTV meek = new MeekSTV(1, 4, 6, tied, tiedStore, null);
+    meek.distributeVotes();
+    assertEquals(tied.get(0), meek.getLosers().getFirst());
+    assertEquals(tied.get(1), meek.getLosers().get(1));
+  }
+}
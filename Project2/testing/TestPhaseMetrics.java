@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for PhaseMetrics.
+ * These tests check that phases are recorded in order with their ballot counts, that the
+ * metrics are formatted as CSV and that the metrics file is named after the audit file.
+ *
+ * @author Zach Larsen
+ */
+public class TestPhaseMetrics {
+
+    /**
+     * Tests recording phases and their throughput.
+     */
+    @Test
+    public void testStartStop() {
+        PhaseMetrics metrics = new PhaseMetrics();
+        metrics.start("load");
+        int[] values = new int[1000];
+        metrics.stop(1000);
+        metrics.start("determine");
+        metrics.stop(0);
+
+        ArrayList<PhaseMetrics.Phase> phases = metrics.getPhases();
+        assertEquals(2, phases.size());
+        assertEquals("load", phases.get(0).getName());
+        assertEquals(1000, phases.get(0).getBallots());
+        assertTrue(phases.get(0).getWallNanos() >= 0);
+        assertTrue(phases.get(0).getBallotsPerSecond() > 0);
+        assertTrue(phases.get(0).getAllocatedBytes() == -1 || phases.get(0).getAllocatedBytes() >= values.length * 4L);
+        assertEquals(0, metrics.getPhase("determine").getBallotsPerSecond());
+        assertNull(metrics.getPhase("audit"));
+
+        // stopping without a running phase records nothing
+        metrics.stop(5);
+        assertEquals(2, metrics.getPhases().size());
+    }
+
+    /**
+     * Tests that the CPU time and allocations of tasks run on other threads are added to the
+     * phase, and that they do not carry over to the next phase.
+     *
+     * @throws Exception If a task can not be run.
+     */
+    @Test
+    public void testWorkerUsage() throws Exception {
+        PhaseMetrics metrics = new PhaseMetrics();
+        metrics.start("load");
+        PhaseMetrics.WorkerUsage usage = metrics.getWorkerUsage();
+        Thread worker = new Thread(() -> {
+            try {
+                usage.measure(() -> new int[250000]);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        worker.start();
+        worker.join();
+        metrics.stop(10);
+        metrics.start("determine");
+        metrics.stop(0);
+
+        PhaseMetrics.Phase load = metrics.getPhase("load");
+        assertTrue(usage.getAllocatedBytes() == -1 || usage.getAllocatedBytes() >= 1000000);
+        assertTrue(load.getAllocatedBytes() == -1 || load.getAllocatedBytes() >= usage.getAllocatedBytes());
+        if (ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported()) {
+            assertTrue(load.getCpuNanos() >= usage.getCpuNanos());
+            assertTrue(metrics.getPhase("determine").getCpuNanos() >= 0);
+        }
+        assertNotSame(usage, metrics.getWorkerUsage());
+
+        // a task on a thread that does not report its figures makes the totals unknown
+        usage.add(-1, -1);
+        assertEquals(-1, usage.getCpuNanos());
+        assertEquals(-1, usage.getAllocatedBytes());
+    }
+
+    /**
+     * Tests formatting the phases as CSV.
+     */
+    @Test
+    public void testFormat() {
+        PhaseMetrics metrics = new PhaseMetrics();
+        metrics.start("tabulate");
+        metrics.stop(5);
+
+        String[] lines = metrics.format("Plurality").split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(PhaseMetrics.HEADER, lines[0]);
+        String[] fields = lines[1].split(",");
+        assertEquals(7, fields.length);
+        assertEquals("Plurality", fields[0]);
+        assertEquals("tabulate", fields[1]);
+        assertEquals("5", fields[5]);
+        assertTrue(fields[6].matches("\\d+\\.\\d"));
+    }
+
+    /**
+     * Tests naming the metrics file after the audit file.
+     */
+    @Test
+    public void testMetricsFileFor() {
+        assertEquals("audit.metrics.csv", PhaseMetrics.metricsFileFor("audit.txt"));
+        assertEquals("audits/county.metrics.csv", PhaseMetrics.metricsFileFor("audits/county.txt"));
+        assertEquals("audit.metrics.csv", PhaseMetrics.metricsFileFor("audit"));
+    }
+
+    /**
+     * Tests that counting an election records its phases and writes them next to the audit.
+     *
+     * @throws IOException If the temporary directory can not be created.
+     */
+    @Test
+    public void testElectionMetricsFile() throws IOException {
+        File directory = Files.createTempDirectory("metrics").toFile();
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("plurality.csv");
+        ElectionDefinition definition = new ElectionDefinition(filenames);
+        definition.setAuditFilename(new File(directory, "audit.txt").getPath());
+        BallotLoader loader = new BallotLoader(filenames);
+        assertTrue(loader.load());
+        Election plurality = TabulationService.createElection(definition, loader);
+
+        plurality.countElection();
+        plurality.writeAuditFile(plurality.getElectionName());
+        File metricsFile = plurality.writeMetricsFile();
+
+        assertEquals(new File(directory, "audit.metrics.csv"), metricsFile);
+        ArrayList<String> phases = new ArrayList<>();
+        for (PhaseMetrics.Phase phase : plurality.getMetrics().getPhases()) {
+            phases.add(phase.getName());
+        }
+        assertEquals(List.of("tabulate", "determine", "audit"), phases);
+        assertEquals(5, plurality.getMetrics().getPhase("tabulate").getBallots());
+        assertEquals(plurality.getMetrics().format("Plurality"), Files.readString(metricsFile.toPath()));
+    }
+}
@@ -321,11 +321,11 @@ public class TestPlurality {
     plurality.tabulateVotes();
 
     assertEquals(3,candidate2.getFirst().getVoteCount());
-    assertEquals(3,candidate2.getFirst().getBallots().size());
+    assertEquals(3,candidate2.getFirst().getBallotIDs().size());
     assertEquals(3,candidate2.get(1).getVoteCount());
-    assertEquals(3,candidate2.get(1).getBallots().size());
+    assertEquals(3,candidate2.get(1).getBallotIDs().size());
     assertEquals(2,candidate2.getLast().getVoteCount());
-    assertEquals(2,candidate2.getLast().getBallots().size());
+    assertEquals(2,candidate2.getLast().getBallotIDs().size());
   }
 
   /**
@@ -598,4 +598,50 @@ public class TestPlurality {
     auditFile.delete(); // Clean up
   }
 
-}
\ No newline at end of file
+  /**
+   * Tests that tabulating in parallel chunks gives the same vote counts and
+   * the same order of ballots for each candidate as tabulating serially.
+   */
+  @Test
+  public void testParallelTabulateVotes() {
+    Plurality serial = new Plurality(3,3,8,candidate2,ballots2, null);
+    serial.tabulateVotes();
+
+    ArrayList<Candidate> parallelCandidates = new ArrayList<>();
+    for (Candidate can : candidate2) {
+      parallelCandidates.add(new Candidate(can.getName()));
+    }
+    ArrayList<Ballot> parallelBallots = new ArrayList<>();
+    for (Ballot ballot : ballots2) {
+      HashMap<Candidate, Integer> rankings = new HashMap<>();
+      for (int i = 0; i < candidate2.size(); i++) {
+        rankings.put(parallelCandidates.get(i), ballot.getRankings().get(candidate2.get(i)));
+      }
+      parallelBallots.add(new Ballot(ballot.getBallotID(), rankings));
+    }
+
+    Plurality parallel = new Plurality(3,3,8,parallelCandidates,parallelBallots, null);
+    parallel.setParallelism(4);
+    parallel.setChunkSize(2);
+    parallel.tabulateVotes();
+
+    for (int i = 0; i < candidate2.size(); i++) {
+      assertEquals(candidate2.get(i).getVoteCount(), parallelCandidates.get(i).getVoteCount());
+      IntList serialBallots = candidate2.get(i).getBallotIDs();
+      IntList parallelCandidateBallots = parallelCandidates.get(i).getBallotIDs();
+      assertEquals(serialBallots.size(), parallelCandidateBallots.size());
+      for (int j = 0; j < serialBallots.size(); j++) {
+        assertEquals(serialBallots.get(j), parallelCandidateBallots.get(j));
+      }
+    }
+  }
+
+  /**
+   * Tests that a chunk size below one row is rejected.
+   */
+  @Test
+  public void testSetChunkSizeRejectsZero() {
+    Plurality plurality = new Plurality(3,3,8,candidate2,ballots2, null);
+    assertThrows(IllegalArgumentException.class, () -> plurality.setChunkSize(0));
+  }
+}
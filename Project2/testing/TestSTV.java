@@ -6,6 +6,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 
 /**
@@ -289,6 +291,7 @@ public class TestSTV {
   /**
    * Test the vote distribution for 1 seat.
    * This test verifies if the votes are correctly distributed among candidates and checks the winners and losers.
+   * When C is eliminated its ballots move to their own next preference A, not to the preference at a shared rank.
    */
   @Test
   public void testDistributeVotes3() {
@@ -297,16 +300,16 @@ public class TestSTV {
     stv.setDroopQuota(droop);
     stv.distributeVotes();
 
-    assertEquals(8, candidates.get(0).getVoteCount());
-    assertEquals(11, candidates.get(1).getVoteCount());
+    assertEquals(11, candidates.get(0).getVoteCount());
+    assertEquals(9, candidates.get(1).getVoteCount());
     assertEquals(6, candidates.get(2).getVoteCount());
     assertEquals(2, candidates.get(3).getVoteCount());
     assertEquals(0, candidates.get(4).getVoteCount());
 
     ArrayList<Candidate> winners= stv.getWinners();
     ArrayList<Candidate> losers = stv.getLosers();
-    assertEquals(candidates.get(0), losers.get(3));
-    assertEquals(candidates.get(1), winners.get(0));
+    assertEquals(candidates.get(0), winners.get(0));
+    assertEquals(candidates.get(1), losers.get(3));
     assertEquals(candidates.get(2), losers.get(2));
     assertEquals(candidates.get(3), losers.get(1));
     assertEquals(candidates.get(4), losers.get(0));
@@ -353,6 +356,59 @@ public class TestSTV {
 
   }
 
+  /**
+   * Test that the election's mask of active candidates follows eliminations, and that a
+   * candidate's status stays its own once it is reused in another election.
+   */
+  @Test
+  public void testActiveCandidatesMask() {
+    ArrayList<Candidate> pair = new ArrayList<>();
+    Candidate can1 = new Candidate("A");
+    Candidate can2 = new Candidate("B");
+    pair.add(can1);
+    pair.add(can2);
+    can1.setVoteCount(15);
+    can2.setVoteCount(5);
+
+    STV first = new STV(false, 0, 2, 20, pair, ballots, null);
+    BitSet active = first.getActiveCandidates();
+    assertEquals(can2, first.eliminateCandidate());
+    assertFalse(active.get(1));
+    assertTrue(active.get(0));
+    assertEquals("eliminated", can2.getStatus());
+
+    // the first election's mask no longer speaks for the candidate
+    can2.setStatus("active");
+    STV second = new STV(false, 0, 2, 20, pair, ballots, null);
+    assertTrue(second.getActiveCandidates().get(1));
+    assertFalse(active.get(1));
+    assertEquals("active", can2.getStatus());
+  }
+
+  /**
+   * Test that candidate elimination reads the current vote counts on every call, including
+   * counts changed after a previous elimination.
+   */
+  @Test
+  public void testEliminateCandidateAfterVoteCountChange() {
+    ArrayList<Candidate> eliminatedCandidates = new ArrayList<>();
+    Candidate can1 = new Candidate("A");
+    Candidate can2 = new Candidate("B");
+    Candidate can3 = new Candidate("C");
+    eliminatedCandidates.add(can1);
+    eliminatedCandidates.add(can2);
+    eliminatedCandidates.add(can3);
+    can1.setVoteCount(15);
+    can2.setVoteCount(5);
+    can3.setVoteCount(10);
+
+    STV stv = new STV(false, 0, 3, 30, eliminatedCandidates, ballots, null);
+    assertEquals(can2, stv.eliminateCandidate());
+    can1.setVoteCount(1);
+    assertEquals(can1, stv.eliminateCandidate());
+    assertEquals(can3, stv.eliminateCandidate());
+  }
+
   /**
    * Test that the ballot's highest ranked active candidate is selected in case where the provided rank has an active candidate.
    */
@@ -641,4 +697,45 @@ public class TestSTV {
     assertTrue(auditFile.exists());
     auditFile.delete(); // Clean up
   }
+
+  /**
+   * Tests fractional surplus transfer for 2 seats. After D is eliminated A reaches 8 votes,
+   * one over the quota of 7, so each of A's 8 ballots moves on to B at weight 1/8. That gives
+   * B exactly the quota.
+   */
+  @Test
+  public void testDistributeFractionalVotes() {
+    STV stv = new STV(false, 2, 5, 20, candidates, ballots, null);
+    stv.setFractionalSurplus(true);
+    stv.setDroopQuota(stv.calculateDroop(20, 2));
+    stv.distributeVotes();
+
+    ArrayList<Candidate> winners = stv.getWinners();
+    ArrayList<Candidate> losers = stv.getLosers();
+    assertEquals(2, winners.size());
+    assertEquals(candidates.get(0), winners.get(0));
+    assertEquals(candidates.get(1), winners.get(1));
+    assertEquals(candidates.get(4), losers.get(0));
+    assertEquals(candidates.get(3), losers.get(1));
+    assertEquals(candidates.get(2), losers.get(2));
+
+    assertEquals(7, candidates.get(0).getVoteCount());
+    assertEquals(7, candidates.get(1).getVoteCount());
+    assertEquals(6, candidates.get(2).getVoteCount());
+  }
+
+  /**
+   * Tests that fractional surplus transfer gives the same result whatever order the ballots are in.
+   */
+  @Test
+  public void testDistributeFractionalVotesOrder() {
+    Collections.reverse(ballots);
+    STV stv = new STV(false, 2, 5, 20, candidates, ballots, null);
+    stv.setFractionalSurplus(true);
+    stv.setDroopQuota(stv.calculateDroop(20, 2));
+    stv.distributeVotes();
+
+    assertEquals(candidates.get(0), stv.getWinners().get(0));
+    assertEquals(candidates.get(1), stv.getWinners().get(1));
+  }
 }
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Test class for StreamingMV.
+ * These tests check that an MV election counted while its files are read gives the same
+ * audit as one counted from loaded ballots when its ballot IDs are spilled to disk.
+ * TestTabulationService checks that streamed and loaded elections give the same results.
+ *
+ * @author Zach Larsen
+ */
+public class TestStreamingMV {
+
+    /**
+     * Writes the audit of a counted election to a string.
+     *
+     * @param election The counted election.
+     * @return The audit.
+     * @throws IOException If the audit can not be written.
+     */
+    private String audit(Election election) throws IOException {
+        ByteArrayOutputStream audit = new ByteArrayOutputStream();
+        try (AuditWriter writer = new AuditWriter(audit)) {
+            election.writeAuditTo(writer, election.getElectionName(), null);
+        }
+        return audit.toString(Charset.defaultCharset());
+    }
+
+    /**
+     * Tests that ballot IDs spilled to disk in small chunks give the same audit as loading the
+     * ballots, that no ballots are built, and that the spill file is deleted once the audit is written.
+     * Both elections settle their ties deterministically, since mv.csv has a tie for the last seat.
+     *
+     * @throws IOException If the audit can not be written.
+     */
+    @Test
+    public void testSpilledAudit() throws IOException {
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("mv.csv");
+        BallotLoader loader = new BallotLoader(filenames);
+        assertTrue(loader.load());
+        MV loaded = (MV) TabulationService.createElection(new ElectionDefinition(filenames), loader);
+        loaded.setDeterministic();
+        loaded.countElection();
+
+        loader = new BallotLoader(filenames);
+        loader.setStreaming(true);
+        assertTrue(loader.load());
+        assertTrue(loader.isStreaming());
+        assertNull(loader.getBallots());
+
+        ArrayList<Candidate> candidates = loader.getCandidates();
+        StreamingMV mv = new StreamingMV(loader.getNumSeats(), loader.getNumCandidates(),
+                loader.getNumBallots(), candidates, loader, null);
+        mv.setDeterministic();
+        mv.getStreamedVotes().setChunkSize(1);
+        mv.countElection();
+        assertTrue(mv.getBallots().isEmpty());
+        assertTrue(mv.getStreamedVotes().getBallotIDLog().getNumChunks() > 0);
+        Path spillFile = mv.getStreamedVotes().getBallotIDLog().getSpillFile();
+        assertTrue(Files.exists(spillFile));
+
+        assertEquals(audit(loaded), audit(mv));
+        assertFalse(Files.exists(spillFile));
+    }
+}
@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+/**
+ * Test class for StreamingPlurality.
+ * These tests check the votes and ballot IDs kept by a Plurality election counted while its
+ * files are read, that it never builds any ballots, and that STV elections are not streamed.
+ * TestTabulationService checks that streamed and loaded elections give the same results.
+ *
+ * @author Zach Larsen
+ */
+public class TestStreamingPlurality {
+
+    /**
+     * Tests the vote counts and ballot IDs kept for each candidate, and that no ballots are built.
+     */
+    @Test
+    public void testTabulateVotes() {
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("plurality.csv");
+        BallotLoader loader = new BallotLoader(filenames);
+        loader.setStreaming(true);
+        assertTrue(loader.load());
+        assertTrue(loader.isStreaming());
+        assertNull(loader.getBallots());
+        assertEquals(5, loader.getNumBallots());
+
+        ArrayList<Candidate> candidates = loader.getCandidates();
+        StreamingPlurality plurality = new StreamingPlurality(loader.getNumSeats(), loader.getNumCandidates(),
+                loader.getNumBallots(), candidates, loader, "streamed.txt");
+        plurality.tabulateVotes();
+
+        Candidate f = candidates.get(5);
+        assertEquals(3, f.getVoteCount());
+        assertArrayEquals(new int[]{3, 4, 5}, plurality.getStreamedVotes().getBallotIDs(f).toArray());
+        assertArrayEquals(new int[]{2}, plurality.getStreamedVotes().getBallotIDs(candidates.get(2)).toArray());
+        assertEquals(0, plurality.getStreamedVotes().getBallotIDs(candidates.get(1)).size());
+        assertEquals(0, f.getBallotIDs().size());
+        assertTrue(plurality.getBallots().isEmpty());
+    }
+
+    /**
+     * Tests that STV elections are not streamed.
+     */
+    @Test
+    public void testStvDoesNotStream() {
+        ArrayList<String> filenames = new ArrayList<>();
+        filenames.add("stv1.csv");
+        BallotLoader loader = new BallotLoader(filenames);
+        loader.setStreaming(true);
+        assertTrue(loader.load());
+        assertFalse(loader.isStreaming());
+        assertNotNull(loader.getBallots());
+    }
+}
@@ -0,0 +1,225 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Test class for the TabulationService.
+ * These tests check that elections are counted without prompts or exiting, that failures
+ * come back in the result, that streamed elections match loaded ones, and that many
+ * elections can be counted at the same time.
+ *
+ * @author Josh Subhan & Baanee Singh
+ */
+public class TestTabulationService {
+
+    /**
+     * Creates a definition for a single election file.
+     *
+     * @param filename The election file.
+     * @return The definition.
+     */
+    private ElectionDefinition define(String filename) {
+        return define(false, filename);
+    }
+
+    /**
+     * Creates a definition for the given election files.
+     *
+     * @param streaming Whether the ballots are streamed.
+     * @param filenames The election files.
+     * @return The definition.
+     */
+    private ElectionDefinition define(boolean streaming, String... filenames) {
+        ArrayList<String> files = new ArrayList<>();
+        for (String filename : filenames) {
+            files.add(filename);
+        }
+        ElectionDefinition definition = new ElectionDefinition(files);
+        definition.setStreaming(streaming);
+        return definition;
+    }
+
+    /**
+     * Tests counting a Plurality election with the audit kept in memory.
+     */
+    @Test
+    public void testTabulate() {
+        try (TabulationService service = new TabulationService(1)) {
+            ElectionResult result = service.tabulate(define("plurality.csv"));
+
+            assertTrue(result.isSuccess());
+            assertEquals("Plurality", result.getElectionName());
+            assertEquals(5, result.getNumBallots());
+            assertEquals(3, result.getWinners().size());
+            assertEquals("F", result.getWinners().getFirst().getName());
+            assertEquals(3, result.getLosers().size());
+            assertTrue(result.getResults().startsWith("Election Type: Plurality\n"));
+            assertNull(result.getAuditFile());
+            assertTrue(result.getAuditText().contains("Winner: F with a vote percentage of 60.0%\n"));
+            assertTrue(result.getAuditText().contains("Order of ballots cast for F: 3, 4, 5\n"));
+        }
+    }
+
+    /**
+     * Tests that an election file that can not be read gives a failed result instead of exiting.
+     */
+    @Test
+    public void testTabulateMissingFile() {
+        try (TabulationService service = new TabulationService(1)) {
+            ElectionResult result = service.tabulate(define("missing.csv"));
+
+            assertFalse(result.isSuccess());
+            assertNotNull(result.getError());
+            assertTrue(result.getWinners().isEmpty());
+        }
+    }
+
+    /**
+     * Tests writing the audit to a file, and that an existing audit file is not overwritten.
+     *
+     * @throws IOException If the temporary directory can not be created.
+     */
+    @Test
+    public void testTabulateAuditFile() throws IOException {
+        File auditFile = Files.createTempDirectory("tabulation").resolve("audit.txt").toFile();
+        ElectionDefinition definition = define("stv1.csv");
+        definition.setShuffle(false);
+        definition.setAuditFilename(auditFile.getPath());
+
+        try (TabulationService service = new TabulationService(1)) {
+            ElectionResult result = service.tabulate(definition);
+            assertTrue(result.isSuccess());
+            assertEquals("STV", result.getElectionName());
+            assertEquals(auditFile, result.getAuditFile());
+            assertTrue(auditFile.exists());
+            assertTrue(new File(auditFile.getParentFile(), "audit.metrics.csv").exists());
+            assertNull(result.getMetricsError());
+            assertEquals(result.getNumBallots(), result.getMetrics().getPhase("load").getBallots());
+            // the file is read on a worker thread, whose allocations are added to the load
+            long loadAllocated = result.getMetrics().getPhase("load").getAllocatedBytes();
+            assertTrue(loadAllocated == -1 || loadAllocated > 0);
+            assertNotNull(result.getMetrics().getPhase("distribute"));
+            assertNotNull(result.getMetrics().getPhase("audit"));
+
+            ElectionResult again = service.tabulate(definition);
+            assertFalse(again.isSuccess());
+            assertTrue(again.getError().contains("already exists"));
+        }
+    }
+
+    /**
+     * Tests that an election whose metrics file can not be written still succeeds with its
+     * audit file written, so it is not run again, and reports the metrics problem separately.
+     *
+     * @throws IOException If the temporary directories can not be created.
+     */
+    @Test
+    public void testTabulateMetricsFailure() throws IOException {
+        File directory = Files.createTempDirectory("tabulation").toFile();
+        File auditFile = new File(directory, "audit.txt");
+        // a directory in the way of the metrics file makes it impossible to write
+        Files.createDirectory(new File(directory, "audit.metrics.csv").toPath());
+        ElectionDefinition definition = define("plurality.csv");
+        definition.setAuditFilename(auditFile.getPath());
+
+        try (TabulationService service = new TabulationService(1)) {
+            ElectionResult result = service.tabulate(definition);
+            assertTrue(result.isSuccess());
+            assertNull(result.getError());
+            assertTrue(auditFile.exists());
+            assertTrue(result.getMetricsError().startsWith("The metrics could not be written: "));
+        }
+    }
+
+    /**
+     * Tests that streaming several Plurality or MV files gives the same results and audit as
+     * loading them, with ballot IDs continuing from one file to the next.
+     */
+    @Test
+    public void testTabulateStreamed() {
+        String[][] elections = {
+            {"plurality.csv", "pluralityp2.csv", "pluralityp3.csv"},
+            {"mv.csv", "mv2.csv"}
+        };
+        String[] ordersOfA = {
+            "Order of ballots cast for A: 1, 6, 11, 12, 14, 16\n",
+            "Order of ballots cast for A: 1, 2, 6, 8, 10, 11\n"
+        };
+        try (TabulationService service = new TabulationService(1)) {
+            for (int i = 0; i < elections.length; i++) {
+                ElectionResult loaded = service.tabulate(define(false, elections[i]));
+                ElectionResult streamed = service.tabulate(define(true, elections[i]));
+
+                assertTrue(loaded.isSuccess());
+                assertTrue(streamed.isSuccess());
+                assertEquals(loaded.getResults(), streamed.getResults());
+                assertEquals(loaded.getAuditText(), streamed.getAuditText());
+                assertTrue(streamed.getAuditText().contains(ordersOfA[i]));
+            }
+        }
+    }
+
+    /**
+     * Tests that an invalid ballot found while streaming a Plurality or MV election fails it.
+     *
+     * @throws IOException If the temporary election files can not be written.
+     */
+    @Test
+    public void testTabulateStreamedInvalidBallot() throws IOException {
+        String[] contents = {
+            "PV\n1\n2\n2\nA,B\n1,\n,x\n",
+            "MV\n1\n2\n2\nA,B\n1,1\n,x\n"
+        };
+        try (TabulationService service = new TabulationService(1)) {
+            for (String content : contents) {
+                Path file = Files.createTempFile("streamed", ".csv");
+                Files.writeString(file, content);
+
+                ElectionResult result = service.tabulate(define(true, file.toString()));
+                assertFalse(result.isSuccess());
+                assertTrue(result.getError().contains("Invalid ballot in " + file));
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Tests that elections counted at the same time give the same result as counting one alone.
+     *
+     * @throws InterruptedException If the test is interrupted while waiting.
+     */
+    @Test
+    public void testTabulateAll() throws InterruptedException {
+        try (TabulationService service = new TabulationService(4)) {
+            ElectionDefinition single = define("stv1.csv");
+            single.setFractionalSurplus(true);
+            ElectionResult expected = service.tabulate(single);
+
+            ArrayList<ElectionDefinition> definitions = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                ElectionDefinition definition = define(i % 2 == 0 ? "stv1.csv" : "plurality.csv");
+                definition.setFractionalSurplus(true);
+                definitions.add(definition);
+            }
+            ArrayList<ElectionResult> results = service.tabulateAll(definitions);
+
+            assertEquals(16, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                ElectionResult result = results.get(i);
+                assertTrue(result.isSuccess());
+                if (i % 2 == 0) {
+                    assertEquals(expected.getResults(), result.getResults());
+                    assertEquals(expected.getAuditText(), result.getAuditText());
+                }
+                else {
+                    assertEquals("Plurality", result.getElectionName());
+                }
+            }
+        }
+    }
+}